@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# Сборка и запуск JMH-бенчмарков без IDE. Аргументы передаются JMH как есть:
+#   benchmarks/run.sh PersistenceBenchmark -p size=10000
+#   benchmarks/run.sh -l                      # список бенчмарков
+# Библиотеки берутся из локального Maven-репозитория (MAVEN_REPOSITORY, по умолчанию ~/.m2/repository),
+# gson можно указать явно через GSON_JAR.
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+M2="${MAVEN_REPOSITORY:-$HOME/.m2/repository}"
+
+GSON_JAR="${GSON_JAR:-$M2/com/google/code/gson/gson/2.10.1/gson-2.10.1.jar}"
+if [[ ! -f "$GSON_JAR" && -f "$ROOT/../Full IT/gson-2.10.1.jar" ]]; then
+    GSON_JAR="$ROOT/../Full IT/gson-2.10.1.jar" # там же, где его ищет проект IntelliJ
+fi
+JMH_CORE="$M2/org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37.jar"
+JMH_PROCESSOR="$M2/org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37.jar"
+JOPT="$M2/net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar"
+MATH="$M2/org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+
+missing=0
+for jar in "$GSON_JAR" "$JMH_CORE" "$JMH_PROCESSOR" "$JOPT" "$MATH"; do
+    if [[ ! -f "$jar" ]]; then
+        echo "Нет библиотеки: $jar" >&2
+        missing=1
+    fi
+done
+if (( missing )); then
+    echo "Скачать в локальный репозиторий (jopt-simple и commons-math3 придут вместе с jmh-core):" >&2
+    echo "  mvn dependency:get -Dartifact=com.google.code.gson:gson:2.10.1" >&2
+    echo "  mvn dependency:get -Dartifact=org.openjdk.jmh:jmh-core:1.37" >&2
+    echo "  mvn dependency:get -Dartifact=org.openjdk.jmh:jmh-generator-annprocess:1.37" >&2
+    exit 1
+fi
+
+JMH_CP="$JMH_CORE:$JOPT:$MATH"
+BUILD="$(mktemp -d)"
+trap 'rm -rf "$BUILD"' EXIT
+
+# основной код, затем бенчмарки: процессор аннотаций JMH генерирует обвязку и META-INF/BenchmarkList
+# пути в кавычках: в них могут быть пробелы
+find "$ROOT/src" -name '*.java' | sed 's/.*/"&"/' > "$BUILD/main.txt"
+javac --release 16 -encoding UTF-8 -d "$BUILD/main" -cp "$GSON_JAR" @"$BUILD/main.txt"
+find "$ROOT/benchmarks/src" -name '*.java' | sed 's/.*/"&"/' > "$BUILD/benchmarks.txt"
+javac --release 16 -encoding UTF-8 -d "$BUILD/benchmarks" -cp "$BUILD/main:$GSON_JAR:$JMH_CP" \
+    -processorpath "$JMH_PROCESSOR:$JMH_CP" @"$BUILD/benchmarks.txt"
+
+java -cp "$BUILD/benchmarks:$BUILD/main:$GSON_JAR:$JMH_CP" benchmarks.BenchmarkRunner "$@"
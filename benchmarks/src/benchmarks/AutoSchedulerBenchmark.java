@@ -0,0 +1,62 @@
+package benchmarks;
+
+import controllers.InMemoryTaskManager;
+import controllers.SchedulingOptions;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AutoSchedulerBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"50000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean workingHours;
+
+    private InMemoryTaskManager manager;
+    private SchedulingOptions options;
+    private int[] pending;
+
+    // Расписание с рваными промежутками и size задач без времени; менеджер пересоздаётся,
+    // потому что планирование его меняет
+    @Setup(Level.Invocation)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Random random = new Random(42);
+        LocalDateTime cursor = START;
+        for (int i = 0; i < size; i++) {
+            cursor = cursor.plusMinutes(30 + random.nextInt(90));
+            manager.createTask(new Task(0, "busy", "d", TaskStatus.NEW, Duration.ofMinutes(30), cursor));
+        }
+        pending = new int[size];
+        for (int i = 0; i < size; i++) {
+            Task task = new Task(0, "new", "d", TaskStatus.NEW, Duration.ofMinutes(5 + random.nextInt(85)), null);
+            manager.createTask(task);
+            pending[i] = task.getId();
+        }
+        options = workingHours
+                ? new SchedulingOptions(START, null, LocalTime.of(9, 0), LocalTime.of(18, 0))
+                : SchedulingOptions.from(START);
+    }
+
+    @Benchmark
+    public List<Task> autoSchedule() {
+        return manager.autoSchedule(pending, options);
+    }
+}
@@ -0,0 +1,8 @@
+package benchmarks;
+
+// Запуск: BenchmarkRunner [опции JMH], например "TaskManagerBenchmark -p size=1000"
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import controllers.ConcurrentHistoryManager;
+import controllers.HistoryManager;
+import controllers.InMemoryHistoryManager;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Просмотры из нескольких потоков: общая блокировка вокруг InMemoryHistoryManager против ConcurrentHistoryManager
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ConcurrentHistoryBenchmark {
+
+    @Param({"locked", "concurrent"})
+    private String impl;
+
+    private HistoryManager history;
+    private final Object lock = new Object();
+    private Task[] pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = impl.equals("locked") ? new InMemoryHistoryManager() : new ConcurrentHistoryManager();
+        pool = new Task[10_000];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Task(i + 1, "t" + i, "d", TaskStatus.NEW, null, null);
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        Task task = pool[ThreadLocalRandom.current().nextInt(pool.length)];
+        if (history instanceof ConcurrentHistoryManager) {
+            history.add(task);
+        } else {
+            synchronized (lock) {
+                history.add(task);
+            }
+        }
+    }
+}
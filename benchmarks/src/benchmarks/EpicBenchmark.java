@@ -0,0 +1,56 @@
+package benchmarks;
+
+import models.Epic;
+import models.Subtask;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpicBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int fanOut;
+
+    private Epic epic;
+    private LocalDateTime start;
+    private int cursor;
+    private boolean done;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        epic = new Epic(1, "epic", "d");
+        start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < fanOut; i++) {
+            epic.addSubtask(subtask(i + 2, TaskStatus.NEW));
+        }
+    }
+
+    // Полный пересчёт по всем подзадачам
+    @Benchmark
+    public TaskStatus updateStatusAndTime() {
+        epic.updateStatusAndTime();
+        return epic.getStatus();
+    }
+
+    // Замена одной подзадачи: агрегаты обновляются инкрементально
+    @Benchmark
+    public TaskStatus replaceSubtask() {
+        cursor = (cursor + 1) % fanOut;
+        done = !done;
+        epic.addSubtask(subtask(cursor + 2, done ? TaskStatus.DONE : TaskStatus.NEW));
+        return epic.getStatus();
+    }
+
+    private Subtask subtask(int id, TaskStatus status) {
+        return new Subtask(id, "s" + id, "d", status, Duration.ofMinutes(10), start.plusMinutes(15L * id), 1);
+    }
+}
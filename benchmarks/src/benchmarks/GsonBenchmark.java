@@ -0,0 +1,56 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import http.GsonFactory;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private final Gson pretty = GsonFactory.build();
+    private final Gson compact = GsonFactory.buildCompact();
+    private List<Task> tasks;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Task(i + 1, "task " + i, "description of task " + i, TaskStatus.NEW,
+                    Duration.ofMinutes(10), start.plusMinutes(15L * i)));
+        }
+        json = compact.toJson(tasks);
+    }
+
+    @Benchmark
+    public String toJsonPretty() {
+        return pretty.toJson(tasks);
+    }
+
+    @Benchmark
+    public String toJsonCompact() {
+        return compact.toJson(tasks);
+    }
+
+    @Benchmark
+    public Task[] fromJson() {
+        return compact.fromJson(json, Task[].class);
+    }
+}
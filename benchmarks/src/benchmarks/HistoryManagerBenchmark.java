@@ -0,0 +1,58 @@
+package benchmarks;
+
+import controllers.HistoryManager;
+import controllers.InMemoryHistoryManager;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryManagerBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private HistoryManager history;
+    private HistoryManager evicting;
+    private Task[] pool;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = new InMemoryHistoryManager();
+        evicting = new InMemoryHistoryManager(Math.max(1, size / 2));
+        pool = new Task[size];
+        for (int i = 0; i < size; i++) {
+            pool[i] = new Task(i + 1, "t" + i, "d", TaskStatus.NEW, Duration.ofMinutes(5), null);
+            history.add(pool[i]);
+        }
+    }
+
+    // Повторный просмотр: удаление из середины списка и перенос в конец
+    @Benchmark
+    public void add() {
+        history.add(pool[cursor]);
+        cursor = (cursor + 7919) % size;
+    }
+
+    // Вдвое больше разных задач, чем помещается: каждый новый просмотр вытесняет самую давнюю
+    @Benchmark
+    public void addWithEviction() {
+        evicting.add(pool[cursor]);
+        cursor = (cursor + 1) % size;
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+}
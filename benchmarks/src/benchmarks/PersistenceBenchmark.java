@@ -0,0 +1,75 @@
+package benchmarks;
+
+import controllers.FileBackedTaskManager;
+import controllers.SnapshotFormat;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    // 0 - полная перезапись файла на каждое изменение, иначе - журнал
+    @Param({"0", "1000"})
+    private int journalLimit;
+
+    @Param({"CSV", "BINARY"})
+    private SnapshotFormat format;
+
+    private Path dir;
+    private Path file;
+    private FileBackedTaskManager manager;
+    private Task updated;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("kanban-bench");
+        file = dir.resolve("tasks.csv");
+        // лимит журнала size - 1: последняя задача сбрасывает всё в снапшот одной записью
+        FileBackedTaskManager filler = new FileBackedTaskManager(file, Math.max(1, size - 1), format);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < size; i++) {
+            filler.createTask(new Task(0, "task " + i, "description of task " + i, TaskStatus.NEW,
+                    Duration.ofMinutes(10), start.plusMinutes(15L * i)));
+        }
+        manager = new FileBackedTaskManager(file, journalLimit, format);
+        updated = manager.getAllTasks().get(size / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    // Одно изменение: save() целиком или запись в журнал
+    @Benchmark
+    public void updateTask() {
+        updated.setStatus(updated.getStatus() == TaskStatus.NEW ? TaskStatus.IN_PROGRESS : TaskStatus.NEW);
+        manager.updateTask(updated);
+    }
+
+    @Benchmark
+    public FileBackedTaskManager load() {
+        return FileBackedTaskManager.loadFromFile(file);
+    }
+}
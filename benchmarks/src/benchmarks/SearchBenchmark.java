@@ -0,0 +1,66 @@
+package benchmarks;
+
+import controllers.InMemoryTaskManager;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int VOCABULARY = 5_000;
+    private static final int WORDS_PER_TASK = 12;
+
+    @Param({"100000"})
+    private int size;
+
+    private InMemoryTaskManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < WORDS_PER_TASK; w++) {
+                // частые слова встречаются чаще редких, как в живом тексте
+                int word = (int) (VOCABULARY * Math.pow(random.nextDouble(), 3));
+                description.append("word").append(word).append(' ');
+            }
+            manager.createTask(new Task(0, "task " + i, description.toString(), TaskStatus.NEW, null, null));
+        }
+    }
+
+    // Одно частое слово: ведущий список длинный, выход по limit
+    @Benchmark
+    public List<Task> frequentWord() {
+        return manager.search("word1", 50);
+    }
+
+    // Два слова (AND): проход по короткому списку с проверкой второго двоичным поиском
+    @Benchmark
+    public List<Task> twoWords() {
+        return manager.search("word3 word2500", 50);
+    }
+
+    // Только префикс: слияние списков всех слов на "word49"
+    @Benchmark
+    public List<Task> prefix() {
+        return manager.search("word49*", 50);
+    }
+
+    // Точное слово и префикс
+    @Benchmark
+    public List<Task> wordAndPrefix() {
+        return manager.search("word2 word1*", 50);
+    }
+}
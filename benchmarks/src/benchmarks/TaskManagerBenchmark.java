@@ -0,0 +1,53 @@
+package benchmarks;
+
+import controllers.InMemoryTaskManager;
+import models.Task;
+import models.TaskStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private InMemoryTaskManager manager;
+    private long nextSlot;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        for (nextSlot = 0; nextSlot < size; nextSlot++) {
+            manager.createTask(scheduled(nextSlot));
+        }
+    }
+
+    // Задача в свободный слот в конце расписания: проверка пересечений + вставка
+    @Benchmark
+    public void createScheduledTask() {
+        manager.createTask(scheduled(nextSlot++));
+    }
+
+    // Задача посреди расписания, пересекается с существующей и отклоняется
+    @Benchmark
+    public void createOverlappingTask() {
+        Task task = new Task(0, "overlap", "d", TaskStatus.NEW, Duration.ofMinutes(10),
+                START.plusMinutes(15L * (size / 2) + 5));
+        manager.createTask(task);
+    }
+
+    private static Task scheduled(long slot) {
+        return new Task(0, "t" + slot, "d", TaskStatus.NEW, Duration.ofMinutes(10), START.plusMinutes(15 * slot));
+    }
+}
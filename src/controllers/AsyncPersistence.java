@@ -0,0 +1,28 @@
+package controllers;
+
+import exceptions.ManagerSaveException;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+// Настройки фоновой записи: изменения копятся не дольше window или до maxBatch штук и пишутся одной пачкой.
+// fsync - сбрасывать ли пачку на диск перед тем, как считать её записанной.
+// onError получает ошибки записи, которые в синхронном режиме были бы выброшены вызывающему.
+public record AsyncPersistence(Duration window, int maxBatch, boolean fsync, Consumer<ManagerSaveException> onError) {
+
+    public AsyncPersistence {
+        if (window == null || window.isNegative()) {
+            throw new IllegalArgumentException("Некорректное окно группировки: " + window);
+        }
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным: " + maxBatch);
+        }
+        if (onError == null) {
+            onError = e -> { };
+        }
+    }
+
+    public static AsyncPersistence of(Duration window, int maxBatch, boolean fsync) {
+        return new AsyncPersistence(window, maxBatch, fsync, null);
+    }
+}
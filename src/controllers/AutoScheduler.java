@@ -0,0 +1,133 @@
+package controllers;
+
+import models.Task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Расстановка задач без времени в свободные промежутки расписания: каждая задача по порядку списка
+// занимает самый ранний промежуток, куда помещается (first fit). Промежутки между занятыми интервалами
+// (и внутри рабочих часов) строятся один раз, их длины в секундах лежат в дереве отрезков по максимуму:
+// нужный промежуток находится спуском по дереву за O(log g), после постановки задачи он укорачивается с начала.
+// Итого O(m + g + n log g) для m занятых интервалов, g промежутков и n задач.
+final class AutoScheduler {
+    private static final long NO_ROOM = -1;
+
+    private final List<LocalDateTime> starts = new ArrayList<>();
+    // последний момент, в который задача в промежутке может закончиться
+    private final List<LocalDateTime> limits = new ArrayList<>();
+    private final SchedulingOptions options;
+
+    private AutoScheduler(SchedulingOptions options) {
+        this.options = options;
+    }
+
+    // busy - задачи расписания, которые пересекаются с окном или касаются его начала, по времени начала.
+    // Результат - начало для каждой задачи из pending или null, если до горизонта она не помещается
+    static LocalDateTime[] plan(List<Task> busy, List<Task> pending, SchedulingOptions options) {
+        AutoScheduler scheduler = new AutoScheduler(options);
+        scheduler.collectGaps(busy, horizon(busy, pending.size(), options));
+        return scheduler.place(pending);
+    }
+
+    // Без срока горизонт выбирается так, чтобы поместилось всё: с рабочими часами - по дню на задачу
+    // после последней занятой, иначе - последний промежуток бесконечен
+    private static LocalDateTime horizon(List<Task> busy, int pending, SchedulingOptions options) {
+        if (options.deadline() != null) return options.deadline();
+        if (!options.hasWorkingHours()) return LocalDateTime.MAX;
+        LocalDateTime base = options.from();
+        if (!busy.isEmpty() && busy.get(busy.size() - 1).getEndTime().isAfter(base)) {
+            base = busy.get(busy.size() - 1).getEndTime();
+        }
+        return base.toLocalDate().plusDays(pending + 1L).atTime(options.workEnd());
+    }
+
+    private void collectGaps(List<Task> busy, LocalDateTime horizon) {
+        LocalDateTime cursor = options.from();
+        for (Task task : busy) {
+            if (!cursor.isBefore(horizon)) return;
+            // стык с занятой задачей - тоже пересечение: закончить нужно строго до её начала
+            if (task.getStartTime().isAfter(cursor)) {
+                addFree(cursor, min(task.getStartTime().minusNanos(1), horizon));
+            }
+            if (!task.getEndTime().isBefore(cursor)) {
+                cursor = InMemoryTaskManager.startAfter(task.getEndTime());
+            }
+        }
+        addFree(cursor, horizon);
+    }
+
+    private void addFree(LocalDateTime start, LocalDateTime limit) {
+        if (!options.hasWorkingHours()) {
+            addGap(start, limit);
+            return;
+        }
+        for (LocalDate day = start.toLocalDate(); !day.isAfter(limit.toLocalDate()); day = day.plusDays(1)) {
+            addGap(max(start, day.atTime(options.workStart())), min(limit, day.atTime(options.workEnd())));
+        }
+    }
+
+    private void addGap(LocalDateTime start, LocalDateTime limit) {
+        if (!start.isAfter(limit)) {
+            starts.add(start);
+            limits.add(limit);
+        }
+    }
+
+    private LocalDateTime[] place(List<Task> pending) {
+        LocalDateTime[] result = new LocalDateTime[pending.size()];
+        int gaps = starts.size();
+        int size = 1;
+        while (size < gaps) {
+            size <<= 1;
+        }
+        long[] tree = new long[2 * size];
+        Arrays.fill(tree, NO_ROOM);
+        for (int i = 0; i < gaps; i++) {
+            tree[size + i] = room(i);
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+
+        for (int i = 0; i < result.length; i++) {
+            Duration duration = pending.get(i).getDuration();
+            long need = duration.getSeconds() + (duration.getNano() > 0 ? 1 : 0);
+            if (tree[1] < need) continue;
+            // самый левый лист, где помещается need
+            int node = 1;
+            while (node < size) {
+                node = tree[2 * node] >= need ? 2 * node : 2 * node + 1;
+            }
+            int gap = node - size;
+            LocalDateTime start = starts.get(gap);
+            result[i] = start;
+            starts.set(gap, InMemoryTaskManager.startAfter(start.plus(duration)));
+            tree[node] = room(gap);
+            for (node >>= 1; node >= 1; node >>= 1) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+        return result;
+    }
+
+    // целые секунды, которые помещаются в промежуток; длительность задачи округляется вверх - с запасом
+    private long room(int gap) {
+        LocalDateTime start = starts.get(gap);
+        LocalDateTime limit = limits.get(gap);
+        return start.isAfter(limit) ? NO_ROOM : ChronoUnit.SECONDS.between(start, limit);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
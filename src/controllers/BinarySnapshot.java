@@ -0,0 +1,235 @@
+package controllers;
+
+import models.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Двоичный снапшот: заголовок с версией, таблица строк (одинаковые имена/описания хранятся один раз),
+// записи фиксированной длины со ссылками на строки, затем история.
+// Время - секунды эпохи UTC + наносекунды, длительность - минуты (как в CSV), перечисления - ordinal.
+// С версии 2 за версией идёт CRC32 всего файла, посчитанный с нулями на месте самой суммы.
+class BinarySnapshot {
+    static final int MAGIC = 0x4B4E424E; // "KNBN"
+    static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_CHECKSUM = 1;
+    private static final int CHECKSUM_OFFSET = Integer.BYTES + Short.BYTES;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long NONE = Long.MIN_VALUE;
+    // type + id + status + name + desc + duration + start + nano + epicId
+    private static final int RECORD_SIZE = 1 + 4 + 1 + 4 + 4 + 8 + 8 + 4 + 4;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinarySnapshot() {
+    }
+
+    static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            readFully(channel, header);
+            return !header.hasRemaining() && header.getInt(0) == MAGIC;
+        }
+    }
+
+    // Снапшот собирается в памяти на потоке вызывающего: фоновому писателю уходят только готовые байты
+    static byte[] write(List<Task> all, List<Task> history) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Task task : all) {
+            intern(strings, task.getName());
+            intern(strings, task.getDescription());
+        }
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream(RECORD_SIZE * all.size() + BUFFER_SIZE);
+        try (WritableByteChannel channel = Channels.newChannel(target)) {
+            Writer out = new Writer(channel);
+            out.ensure(CHECKSUM_OFFSET + Integer.BYTES);
+            out.buffer.putInt(MAGIC).putShort(VERSION).putInt(0);
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(strings.size());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.ensure(Integer.BYTES);
+                out.buffer.putInt(bytes.length);
+                out.put(bytes);
+            }
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(all.size());
+            for (Task task : all) {
+                out.ensure(RECORD_SIZE);
+                ByteBuffer b = out.buffer;
+                b.put((byte) task.getType().ordinal());
+                b.putInt(task.getId());
+                b.put(task.getStatus() == null ? -1 : (byte) task.getStatus().ordinal());
+                b.putInt(ref(strings, task.getName()));
+                b.putInt(ref(strings, task.getDescription()));
+                b.putLong(task.getDuration() == null ? NONE : task.getDuration().toMinutes());
+                LocalDateTime start = task.getStartTime();
+                b.putLong(start == null ? NONE : start.toEpochSecond(ZoneOffset.UTC));
+                b.putInt(start == null ? 0 : start.getNano());
+                b.putInt(task instanceof Subtask sub ? sub.getEpicId() : 0);
+            }
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(history.size());
+            for (Task task : history) {
+                out.ensure(Integer.BYTES);
+                out.buffer.putInt(task.getId());
+            }
+            out.flush();
+            byte[] result = target.toByteArray();
+            ByteBuffer.wrap(result).putInt(CHECKSUM_OFFSET, (int) out.crc.getValue());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // запись в память не падает
+        }
+    }
+
+    static void read(Path file, Consumer<Task> sink, List<Integer> historyIds) throws IOException {
+        ByteBuffer b;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снапшот слишком большой: " + size + " байт");
+            }
+            b = ByteBuffer.allocate((int) size);
+            readFully(channel, b);
+            b.flip();
+        }
+
+        try {
+            checkHeader(file, b);
+            readBody(b, sink, historyIds);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            // файл первой версии без контрольной суммы, обрезанный при записи
+            throw new IOException("Снапшот повреждён: " + file, e);
+        }
+    }
+
+    private static void checkHeader(Path file, ByteBuffer b) throws IOException {
+        if (b.getInt() != MAGIC) throw new IOException("Не двоичный снапшот: " + file);
+        short version = b.getShort();
+        if (version == VERSION) {
+            int stored = b.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(b.array(), 0, CHECKSUM_OFFSET);
+            crc.update(new byte[Integer.BYTES]);
+            crc.update(b.array(), b.position(), b.limit() - b.position());
+            if ((int) crc.getValue() != stored) {
+                throw new IOException("Контрольная сумма снапшота не совпадает: " + file);
+            }
+        } else if (version != VERSION_WITHOUT_CHECKSUM) {
+            throw new IOException("Неподдерживаемая версия снапшота: " + version);
+        }
+    }
+
+    private static void readBody(ByteBuffer b, Consumer<Task> sink, List<Integer> historyIds) {
+        String[] strings = new String[b.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = b.getInt();
+            strings[i] = new String(b.array(), b.position(), length, StandardCharsets.UTF_8);
+            b.position(b.position() + length);
+        }
+
+        int count = b.getInt();
+        for (int i = 0; i < count; i++) {
+            TaskType type = TYPES[b.get()];
+            int id = b.getInt();
+            byte statusOrdinal = b.get();
+            TaskStatus status = statusOrdinal < 0 ? null : STATUSES[statusOrdinal];
+            String name = string(strings, b.getInt());
+            String desc = string(strings, b.getInt());
+            long minutes = b.getLong();
+            Duration duration = minutes == NONE ? null : Duration.ofMinutes(minutes);
+            long epochSecond = b.getLong();
+            int nano = b.getInt();
+            LocalDateTime startTime = epochSecond == NONE ? null
+                    : LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), ZoneOffset.UTC);
+            int epicId = b.getInt();
+            sink.accept(switch (type) {
+                case TASK -> new Task(id, name, desc, status, duration, startTime);
+                case EPIC -> new Epic(id, name, desc);
+                case SUBTASK -> new Subtask(id, name, desc, status, duration, startTime, epicId);
+            });
+        }
+
+        int historyCount = b.getInt();
+        for (int i = 0; i < historyCount; i++) {
+            historyIds.add(b.getInt());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) break;
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String s) {
+        if (s != null) {
+            strings.putIfAbsent(s, strings.size());
+        }
+    }
+
+    private static int ref(Map<String, Integer> strings, String s) {
+        return s == null ? -1 : strings.get(s);
+    }
+
+    private static String string(String[] strings, int ref) {
+        return ref < 0 ? null : strings[ref];
+    }
+
+    private static class Writer {
+        final WritableByteChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        final CRC32 crc = new CRC32();
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) flush();
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package controllers;
+
+import models.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// История для многопоточного доступа без общей блокировки. Каждый просмотр получает номер из счётчика,
+// по id хранится только самый свежий просмотр (повтор заменяет запись через CAS), а порядок
+// восстанавливается при чтении сортировкой по номеру. Лишнее сверх capacity срезает один поток,
+// остальные в это время не ждут.
+// Удаление оставляет надгробие со своим номером: просмотр, номер которого взят до удаления, а запись
+// опоздала, видит более свежее надгробие и отбрасывается. Надгробия срезаются вместе с лишними записями.
+public class ConcurrentHistoryManager implements HistoryManager {
+
+    // task == null - надгробие удалённой задачи
+    private record Entry(long seq, int id, Task task) {
+    }
+
+    private static final Comparator<Entry> BY_SEQ = Comparator.comparingLong(Entry::seq);
+
+    private final ConcurrentHashMap<Integer, Entry> latest = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    private final int capacity;
+    // запас сверх capacity, чтобы срезать пачкой, а не на каждом add
+    private final int slack;
+
+    public ConcurrentHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    public ConcurrentHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slack = Math.max(16, capacity / 8);
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+
+        Entry entry = new Entry(sequence.incrementAndGet(), task.getId(), task);
+        Integer id = entry.id();
+        while (true) {
+            Entry current = latest.putIfAbsent(id, entry);
+            // более свежий просмотр другого потока (или удаление) уже записан - наш устарел
+            if (current == null || current.seq() > entry.seq() || latest.replace(id, current, entry)) {
+                break;
+            }
+        }
+        trimIfNeeded();
+    }
+
+    @Override
+    public void remove(int id) {
+        Entry tombstone = new Entry(sequence.incrementAndGet(), id, null);
+        latest.compute(id, (k, current) -> current != null && current.seq() > tombstone.seq() ? current : tombstone);
+        trimIfNeeded();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Entry> entries = new ArrayList<>(latest.values());
+        entries.removeIf(e -> e.task() == null);
+        entries.sort(BY_SEQ);
+        int from = Math.max(0, entries.size() - capacity);
+        List<Task> result = new ArrayList<>(entries.size() - from);
+        for (int i = from; i < entries.size(); i++) {
+            result.add(entries.get(i).task());
+        }
+        return result;
+    }
+
+    private void trimIfNeeded() {
+        if (latest.size() > capacity + slack) {
+            trim();
+        }
+    }
+
+    // Остаются capacity самых свежих просмотров и не больше slack / 2 самых свежих надгробий:
+    // опоздавшей записи нужно было бы пропустить вперёд себя столько удалений
+    private void trim() {
+        if (!trimming.compareAndSet(false, true)) return;
+        try {
+            List<Entry> entries = new ArrayList<>(latest.values());
+            entries.sort(BY_SEQ.reversed());
+            int live = 0;
+            int tombstones = 0;
+            for (Entry entry : entries) {
+                boolean keep = entry.task() == null ? ++tombstones <= slack / 2 : ++live <= capacity;
+                if (!keep) {
+                    // запись могли обновить после снимка - тогда remove её не тронет
+                    latest.remove(entry.id(), entry);
+                }
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+}
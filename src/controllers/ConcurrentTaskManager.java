@@ -0,0 +1,300 @@
+package controllers;
+
+import models.*;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+// Потокобезопасный менеджер: чтение идёт без блокировок, изменения одного эпика (или одной задачи)
+// выполняются под своей полосой блокировок, проверка пересечений и запись в prioritizedTasks - под общей.
+// Любое изменение держит разделяемую сторону structureLock, а очистки и пакетные операции - исключительную:
+// так они не перемежаются ни с одним изменением, в том числе с созданием задач и эпиков без полосы.
+// Порядок захвата: structureLock -> полоса -> scheduleLock.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+
+    private static final int STRIPES = 64;
+
+    private final AtomicInteger idSequence = new AtomicInteger(1);
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+    public ConcurrentTaskManager() {
+        super(new ConcurrentSkipListMap<>(), new ConcurrentSkipListMap<>(), new ConcurrentSkipListMap<>(),
+                new ConcurrentSkipListSet<>(PRIORITY_ORDER));
+        this.historyManager = Managers.getConcurrentHistory();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected int generateId() {
+        return idSequence.getAndIncrement();
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = super.getTask(id);
+        forgetIfDeleted(id);
+        return task;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = super.getEpic(id);
+        forgetIfDeleted(id);
+        return epic;
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = super.getSubtask(id);
+        forgetIfDeleted(id);
+        return subtask;
+    }
+
+    // Задачу могли удалить между чтением и записью просмотра - тогда просмотр лёг в историю уже после
+    // удаления. Проверка идёт после записи, а id не переиспользуются, так что убирать можно без блокировок
+    private void forgetIfDeleted(int id) {
+        if (!tasks.containsKey(id) && !epics.containsKey(id) && !subtasks.containsKey(id)) {
+            historyManager.remove(id);
+            changed(TaskCollection.HISTORY);
+        }
+    }
+
+    @Override
+    public boolean createTask(Task task) {
+        structureLock.readLock().lock();
+        try {
+            return super.createTask(task);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void createEpic(Epic epic) {
+        structureLock.readLock().lock();
+        try {
+            super.createEpic(epic);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean createSubtask(Subtask subtask) {
+        return withStripe(subtask.getEpicId(), () -> super.createSubtask(subtask));
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        return withStripe(task.getId(), () -> super.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        withStripe(epic.getId(), () -> super.updateEpic(epic));
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        structureLock.readLock().lock();
+        try {
+            return moveSubtask(subtask);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    private boolean moveSubtask(Subtask subtask) {
+        while (true) {
+            Subtask old = subtasks.get(subtask.getId());
+            if (old == null) return super.updateSubtask(subtask); // NotFoundException
+            // подзадача может переехать в другой эпик - берём обе полосы по возрастанию номера
+            int a = stripeIndex(old.getEpicId());
+            int b = stripeIndex(subtask.getEpicId());
+            ReentrantLock first = stripes[Math.min(a, b)];
+            ReentrantLock second = stripes[Math.max(a, b)];
+            first.lock();
+            second.lock();
+            try {
+                Subtask current = subtasks.get(subtask.getId());
+                if (current == null || current.getEpicId() == old.getEpicId()) {
+                    return super.updateSubtask(subtask);
+                }
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        withStripe(id, () -> super.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        withStripe(id, () -> super.deleteEpicById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        structureLock.readLock().lock();
+        try {
+            removeSubtask(id);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    private void removeSubtask(int id) {
+        while (true) {
+            Subtask subtask = subtasks.get(id);
+            if (subtask == null) {
+                super.deleteSubtaskById(id);
+                return;
+            }
+            ReentrantLock lock = stripe(subtask.getEpicId());
+            lock.lock();
+            try {
+                // пока ждали блокировку, подзадачу могли перенести в другой эпик
+                Subtask current = subtasks.get(id);
+                if (current == null || current.getEpicId() == subtask.getEpicId()) {
+                    super.deleteSubtaskById(id);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // копия снимается под полосой эпика: список соответствует одному состоянию эпика, а не середине изменения
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        ReentrantLock lock = stripe(epicId);
+        lock.lock();
+        try {
+            return super.getEpicSubtasks(epicId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clearTasks() {
+        structureLock.writeLock().lock();
+        try {
+            super.clearTasks();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearEpics() {
+        structureLock.writeLock().lock();
+        try {
+            super.clearEpics();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clearSubtasks() {
+        structureLock.writeLock().lock();
+        try {
+            super.clearSubtasks();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    // пакет затрагивает произвольные эпики, а проверка и вставка в prioritizedTasks должны пройти одним шагом
+    @Override
+    public boolean createAll(List<? extends Task> batch) {
+        structureLock.writeLock().lock();
+        try {
+            return super.createAll(batch);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> autoSchedule(int[] ids, SchedulingOptions options) {
+        structureLock.writeLock().lock();
+        try {
+            return super.autoSchedule(ids, options);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteByIds(int[] ids) {
+        structureLock.writeLock().lock();
+        try {
+            super.deleteByIds(ids);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected boolean reschedule(Task old, Task updated) {
+        scheduleLock.lock();
+        try {
+            return super.reschedule(old, updated);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    protected void unschedule(Task task) {
+        scheduleLock.lock();
+        try {
+            super.unschedule(task);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void withStripe(int id, Runnable action) {
+        withStripe(id, () -> {
+            action.run();
+            return true;
+        });
+    }
+
+    private boolean withStripe(int id, BooleanSupplier action) {
+        structureLock.readLock().lock();
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            return action.getAsBoolean();
+        } finally {
+            lock.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    private ReentrantLock stripe(int id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private static int stripeIndex(int id) {
+        return Math.floorMod(id, STRIPES);
+    }
+}
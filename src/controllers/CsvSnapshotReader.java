@@ -0,0 +1,227 @@
+package controllers;
+
+import models.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Чтение CSV-снапшота из буфера с файлом целиком: границы полей находятся за один проход
+// (с учётом экранирования "\,"), числа, перечисления и время разбираются из байтов,
+// в строки декодируются только имя и описание.
+// Первая строка "#crc32=xxxxxxxx" - CRC32 всего файла, посчитанный с нулями на месте самой суммы;
+// в старых файлах её нет, и они читаются без проверки.
+// Файл читается в обычный буфер, а не отображается в память: отображение нельзя освободить явно,
+// и до сборки мусора оно держит файл (в Windows его тогда не заменить и не удалить).
+class CsvSnapshotReader {
+    static final String CHECKSUM_PREFIX = "#crc32=";
+    static final String EMPTY_CHECKSUM = "00000000";
+    private static final int FIELDS = 8;
+
+    private final ByteBuffer buf;
+    private final int limit;
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private int pos;
+
+    private CsvSnapshotReader(ByteBuffer buf) {
+        this.buf = buf;
+        this.limit = buf.limit();
+    }
+
+    static void read(Path file, Consumer<Task> sink, List<Integer> historyIds) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снапшот слишком большой: " + size + " байт");
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) size);
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) break;
+            }
+            CsvSnapshotReader reader = new CsvSnapshotReader(content.flip());
+            if (reader.limit > 0 && reader.buf.get(0) == '#') {
+                reader.verifyChecksum(file);
+                reader.skipLine();
+            }
+            reader.skipLine(); // заголовок
+            while (reader.pos < reader.limit && !reader.atBlankLine()) {
+                sink.accept(reader.readTask());
+            }
+            reader.skipLine(); // пустая строка перед историей
+            reader.readHistory(historyIds);
+        }
+    }
+
+    private void verifyChecksum(Path file) throws IOException {
+        int digitsAt = CHECKSUM_PREFIX.length();
+        int digitsEnd = digitsAt + EMPTY_CHECKSUM.length();
+        if (limit < digitsEnd) {
+            throw new IOException("Снапшот повреждён: " + file);
+        }
+        byte[] digits = new byte[EMPTY_CHECKSUM.length()];
+        buf.get(digitsAt, digits);
+        long stored;
+        try {
+            stored = Long.parseLong(new String(digits, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Снапшот повреждён: " + file, e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(0, digitsAt));
+        crc.update(EMPTY_CHECKSUM.getBytes(StandardCharsets.US_ASCII));
+        crc.update(buf.slice(digitsEnd, limit - digitsEnd));
+        if (crc.getValue() != stored) {
+            throw new IOException("Контрольная сумма снапшота не совпадает: " + file);
+        }
+    }
+
+    private boolean atBlankLine() {
+        byte b = buf.get(pos);
+        return b == '\n' || (b == '\r' && pos + 1 < limit && buf.get(pos + 1) == '\n');
+    }
+
+    private void skipLine() {
+        while (pos < limit && buf.get(pos++) != '\n') {
+            // до конца строки
+        }
+    }
+
+    private Task readTask() throws IOException {
+        int field = 0;
+        boolean lineEnded = false;
+        starts[0] = pos;
+        while (pos < limit) {
+            byte b = buf.get(pos);
+            if (b == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (b == ',' || b == '\n') {
+                if (field < FIELDS) ends[field] = pos;
+                pos++;
+                if (b == '\n') {
+                    lineEnded = true;
+                    break;
+                }
+                field++;
+                if (field < FIELDS) starts[field] = pos;
+                continue;
+            }
+            pos++;
+        }
+        if (!lineEnded && field < FIELDS) {
+            ends[field] = Math.min(pos, limit); // последняя строка без перевода строки
+        }
+        if (field < FIELDS - 1) {
+            throw new IOException("Некорректная строка снапшота на позиции " + starts[0]);
+        }
+        trimCarriageReturn(FIELDS - 1);
+
+        TaskType type = switch (buf.get(starts[0])) {
+            case 'T' -> TaskType.TASK;
+            case 'E' -> TaskType.EPIC;
+            case 'S' -> TaskType.SUBTASK;
+            default -> throw new IOException("Неизвестный тип задачи на позиции " + starts[0]);
+        };
+        int id = (int) parseLong(1);
+        String name = text(2);
+        TaskStatus status = switch (buf.get(starts[3])) {
+            case 'N' -> TaskStatus.NEW;
+            case 'I' -> TaskStatus.IN_PROGRESS;
+            case 'D' -> TaskStatus.DONE;
+            default -> throw new IOException("Неизвестный статус на позиции " + starts[3]);
+        };
+        String desc = text(4);
+        Duration duration = isEmpty(5) ? null : Duration.ofMinutes(parseLong(5));
+        LocalDateTime startTime = isEmpty(6) ? null : parseDateTime(6);
+        return switch (type) {
+            case TASK -> new Task(id, name, desc, status, duration, startTime);
+            case EPIC -> new Epic(id, name, desc);
+            case SUBTASK -> new Subtask(id, name, desc, status, duration, startTime, (int) parseLong(7));
+        };
+    }
+
+    private void readHistory(List<Integer> historyIds) throws IOException {
+        while (pos < limit) {
+            starts[0] = pos;
+            while (pos < limit && buf.get(pos) != ',' && buf.get(pos) != '\n') {
+                pos++;
+            }
+            ends[0] = pos;
+            trimCarriageReturn(0);
+            if (!isEmpty(0)) {
+                historyIds.add((int) parseLong(0));
+            }
+            if (pos < limit && buf.get(pos) == '\n') break;
+            pos++;
+        }
+    }
+
+    private void trimCarriageReturn(int field) {
+        if (ends[field] > starts[field] && buf.get(ends[field] - 1) == '\r') {
+            ends[field]--;
+        }
+    }
+
+    private boolean isEmpty(int field) {
+        return ends[field] <= starts[field];
+    }
+
+    private String text(int field) {
+        int length = ends[field] - starts[field];
+        byte[] bytes = new byte[length];
+        buf.get(starts[field], bytes);
+        return FileBackedTaskManager.unescape(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private long parseLong(int field) throws IOException {
+        return parseLong(starts[field], ends[field]);
+    }
+
+    private long parseLong(int from, int to) throws IOException {
+        if (from >= to) throw new IOException("Пустое число на позиции " + from);
+        boolean negative = buf.get(from) == '-';
+        long value = 0;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9) throw new IOException("Некорректное число на позиции " + from);
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // ISO_LOCAL_DATE_TIME в виде, который пишет FileBackedTaskManager: yyyy-MM-ddTHH:mm[:ss[.f…]]
+    private LocalDateTime parseDateTime(int field) throws IOException {
+        int s = starts[field];
+        int e = ends[field];
+        if (e - s < 16 || buf.get(s + 4) != '-' || buf.get(s + 10) != 'T') {
+            return LocalDateTime.parse(text(field), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+        int year = (int) parseLong(s, s + 4);
+        int month = (int) parseLong(s + 5, s + 7);
+        int day = (int) parseLong(s + 8, s + 10);
+        int hour = (int) parseLong(s + 11, s + 13);
+        int minute = (int) parseLong(s + 14, s + 16);
+        int second = 0;
+        int nano = 0;
+        if (e - s >= 19) {
+            second = (int) parseLong(s + 17, s + 19);
+            if (e - s > 20) {
+                int digits = e - (s + 20);
+                nano = (int) parseLong(s + 20, e);
+                for (int i = digits; i < 9; i++) nano *= 10;
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+}
@@ -5,26 +5,62 @@ import exceptions.*;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.file.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
 
     private final Path file;
+    private final Path journal;
+    // 0 - каждое изменение переписывает весь файл, иначе - журнал до journalLimit записей
+    private final int journalLimit;
+    // формат, в котором пишется снапшот; читается любой - по заголовку файла
+    private final SnapshotFormat format;
+    // null - запись на потоке вызывающего, иначе - фоновая запись пачками
+    private final GroupCommitWriter writer;
+    private int journalSize;
+    // просмотры пишутся отдельно, чтобы чтение не трогало файл с данными
+    private final Path historyLog;
+    private int historyLogSize;
+    private int historyLogCompactAt = HISTORY_LOG_LIMIT;
+    private static final int HISTORY_LOG_LIMIT = 1000;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
     public FileBackedTaskManager(Path file) {
+        this(file, 0);
+    }
+
+    public FileBackedTaskManager(Path file, int journalLimit) {
+        this(file, journalLimit, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(Path file, int journalLimit, SnapshotFormat format) {
+        this(file, journalLimit, format, null);
+    }
+
+    public FileBackedTaskManager(Path file, int journalLimit, SnapshotFormat format, AsyncPersistence async) {
         this.file = file;
+        this.format = format;
+        this.journal = file.resolveSibling(file.getFileName() + ".journal");
+        this.historyLog = file.resolveSibling(file.getFileName() + ".history");
+        this.journalLimit = journalLimit;
         this.historyManager = Managers.getDefaultHistory();
-        if (Files.exists(file)) {
+        if (Files.exists(file) || Files.exists(journal) || Files.exists(historyLog)) {
             load();
         }
+        this.writer = async == null ? null : new GroupCommitWriter(async, "task-writer-" + file.getFileName());
     }
 
     public static FileBackedTaskManager loadFromFile(Path file) {
@@ -35,157 +71,470 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return new FileBackedTaskManager(file);
     }
 
+    // завершится, когда все изменения, сделанные до вызова, будут записаны (и сброшены на диск, если включён fsync)
+    public CompletableFuture<Void> flush() {
+        return writer == null ? CompletableFuture.completedFuture(null) : writer.flush();
+    }
+
     @Override
-    public void createTask(Task task) {
-        super.createTask(task);
-        save();
+    public void close() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Override
+    public boolean createTask(Task task) {
+        if (!super.createTask(task)) return false;
+        persistPut(task);
+        return true;
     }
 
     @Override
     public void createEpic(Epic epic) {
         super.createEpic(epic);
-        save();
+        persistPut(epics.get(epic.getId()));
     }
 
     @Override
-    public void createSubtask(Subtask subtask) {
-        super.createSubtask(subtask);
-        save();
+    public boolean createSubtask(Subtask subtask) {
+        if (!super.createSubtask(subtask)) return false;
+        persistPut(subtask);
+        return true;
     }
 
     @Override
-    public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+    public boolean updateTask(Task task) {
+        if (!super.updateTask(task)) return false;
+        persistPut(task);
+        return true;
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        persistPut(epics.get(epic.getId()));
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+    public boolean updateSubtask(Subtask subtask) {
+        if (!super.updateSubtask(subtask)) return false;
+        persistPut(subtask);
+        return true;
     }
 
     @Override
     public Task getTask(int id) {
         Task task = super.getTask(id);
-        save();
+        appendHistory(id);
         return task;
     }
 
     @Override
     public Epic getEpic(int id) {
         Epic epic = super.getEpic(id);
-        save();
+        appendHistory(id);
         return epic;
     }
 
     @Override
     public Subtask getSubtask(int id) {
         Subtask subtask = super.getSubtask(id);
-        save();
+        appendHistory(id);
         return subtask;
     }
 
     @Override
     public void deleteTaskById(int id) {
+        // удаление несуществующей задачи ничего не меняет - и в журнал не пишется
+        if (!tasks.containsKey(id)) return;
         super.deleteTaskById(id);
-        save();
+        persist("DEL," + id);
     }
 
     @Override
     public void deleteEpicById(int id) {
+        if (!epics.containsKey(id)) return;
         super.deleteEpicById(id);
-        save();
+        persist("DEL," + id);
     }
 
     @Override
     public void deleteSubtaskById(int id) {
+        if (!subtasks.containsKey(id)) return;
         super.deleteSubtaskById(id);
-        save();
+        persist("DEL," + id);
     }
 
     @Override
     public void clearTasks() {
         super.clearTasks();
-        save();
+        persist("CLEAR," + TaskType.TASK.name());
     }
 
     @Override
     public void clearEpics() {
         super.clearEpics();
-        save();
+        persist("CLEAR," + TaskType.EPIC.name());
     }
 
     @Override
     public void clearSubtasks() {
         super.clearSubtasks();
-        save();
+        persist("CLEAR," + TaskType.SUBTASK.name());
+    }
+
+    @Override
+    public boolean createAll(List<? extends Task> batch) {
+        if (!super.createAll(batch)) return false;
+        List<String> records = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            records.add("PUT," + taskToString(task));
+        }
+        persistAll(records);
+        return true;
+    }
+
+    @Override
+    public List<Task> autoSchedule(int[] ids, SchedulingOptions options) {
+        List<Task> placed = super.autoSchedule(ids, options);
+        List<String> records = new ArrayList<>(placed.size());
+        for (Task task : placed) {
+            records.add("PUT," + taskToString(task));
+        }
+        persistAll(records);
+        return placed;
+    }
+
+    @Override
+    public void deleteByIds(int[] ids) {
+        List<String> records = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            if (tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id)) {
+                records.add("DEL," + id);
+            }
+        }
+        super.deleteByIds(ids);
+        persistAll(records);
+    }
+
+    private void persistPut(Task task) {
+        // null - изменение отклонено (пересечение по времени, нет эпика и т.п.)
+        if (task == null) return;
+        if (snapshotDue()) {
+            save();
+        } else {
+            appendJournal("PUT," + taskToString(task));
+        }
+    }
+
+    private void persist(String record) {
+        if (snapshotDue()) {
+            save();
+        } else {
+            appendJournal(record);
+        }
+    }
+
+    // пакет, не помещающийся в журнал целиком, дешевле записать одним снапшотом
+    private void persistAll(List<String> records) {
+        if (records.isEmpty()) return;
+        if (snapshotDue() || journalSize + records.size() > journalLimit) {
+            save();
+        } else {
+            appendJournal(records);
+        }
+    }
+
+    private boolean snapshotDue() {
+        return journalLimit <= 0 || journalSize >= journalLimit;
+    }
+
+    private void appendJournal(String record) {
+        appendJournal(List.of(record));
+    }
+
+    private void appendJournal(List<String> records) {
+        if (writer != null) {
+            writer.append(journal, String.join(System.lineSeparator(), records));
+            journalSize += records.size();
+            return;
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String record : records) {
+                out.write(record);
+                out.newLine();
+            }
+            journalSize += records.size();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи в журнал: " + e.getMessage(), e);
+        }
+    }
+
+    private void appendHistory(int id) {
+        if (historyLogSize >= historyLogCompactAt) {
+            rewriteHistoryLog();
+            return;
+        }
+        if (writer != null) {
+            writer.append(historyLog, String.valueOf(id));
+            historyLogSize++;
+            return;
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(historyLog, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(String.valueOf(id));
+            out.newLine();
+            historyLogSize++;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи истории: " + e.getMessage(), e);
+        }
     }
 
+    private void rewriteHistoryLog() {
+        List<Task> history = getHistory();
+        StringBuilder content = new StringBuilder();
+        for (Task task : history) {
+            content.append(task.getId()).append(System.lineSeparator());
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        io(() -> replaceAtomically(historyLog, bytes), "Ошибка при записи истории: ");
+        historyLogSize = history.size();
+        historyLogCompactAt = 2 * history.size() + HISTORY_LOG_LIMIT;
+    }
+
+    // Снапшот сериализуется здесь, на потоке вызывающего, пока задачи никто не меняет:
+    // фоновому писателю уходят готовые байты, а не живые объекты
     private void save() {
-        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
-            writer.write("type,id,name,status,description,duration,startTime,epic");
-            writer.newLine();
+        List<Task> all = new ArrayList<>();
+        all.addAll(getAllTasks());
+        all.addAll(getAllEpics());
+        all.addAll(getAllSubtasks());
+        all.sort(Comparator.comparingInt(Task::getId));
+        List<Task> history = getHistory();
+        byte[] bytes = format == SnapshotFormat.BINARY ? BinarySnapshot.write(all, history) : toCsv(all, history);
+        GroupCommitWriter.IoAction action = () -> {
+            replaceAtomically(file, bytes);
+            // снапшот уже содержит все изменения из журнала; строки, поставленные после него, ещё не записаны
+            Files.deleteIfExists(journal);
+            Files.deleteIfExists(historyLog);
+        };
+        if (writer != null) {
+            // из нескольких снапшотов в очереди записывается только последний
+            writer.submitSnapshot(action);
+        } else {
+            io(action, "Ошибка при записи в файл: ");
+        }
+        journalSize = 0;
+        historyLogSize = 0;
+    }
 
-            List<Task> all = new ArrayList<>();
-            all.addAll(getAllTasks());
-            all.addAll(getAllEpics());
-            all.addAll(getAllSubtasks());
-            all.sort(Comparator.comparingInt(Task::getId));
+    // в фоновом режиме действие уходит в очередь писателя, ошибки получит AsyncPersistence.onError
+    private void io(GroupCommitWriter.IoAction action, String error) {
+        if (writer != null) {
+            writer.submit(action);
+            return;
+        }
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new ManagerSaveException(error + e.getMessage(), e);
+        }
+    }
 
-            for (Task task : all) {
-                writer.write(taskToString(task));
-                writer.newLine();
+    // файл пишется рядом во временный, сбрасывается на диск и атомарно подменяет старый:
+    // читатель (в том числе параллельный load) видит либо прежнюю версию, либо новую целиком
+    private static void replaceAtomically(Path target, byte[] content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
             }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
 
-            writer.newLine();
-            writer.write(historyToString(getHistory()));
+    private byte[] toCsv(List<Task> all, List<Task> history) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * all.size() + 256);
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            out.write(CsvSnapshotReader.CHECKSUM_PREFIX + CsvSnapshotReader.EMPTY_CHECKSUM);
+            out.newLine();
+            out.write("type,id,name,status,description,duration,startTime,epic");
+            out.newLine();
+            for (Task task : all) {
+                out.write(taskToString(task));
+                out.newLine();
+            }
+            out.newLine();
+            out.write(historyToString(history));
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при записи в файл: " + e.getMessage());
+            throw new UncheckedIOException(e); // запись в память не падает
         }
+        // сумма считается с нулями на своём месте и вписывается поверх них
+        byte[] result = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(result);
+        byte[] checksum = String.format("%08x", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(checksum, 0, result, CsvSnapshotReader.CHECKSUM_PREFIX.length(), checksum.length);
+        return result;
     }
 
     private void load() {
-        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            String line = reader.readLine();
-            while ((line = reader.readLine()) != null && !line.isBlank()) {
-                Task task = taskFromString(line);
-                switch (task.getType()) {
-                    case TASK -> tasks.put(task.getId(), task);
-                    case EPIC -> epics.put(task.getId(), (Epic) task);
-                    case SUBTASK -> subtasks.put(task.getId(), (Subtask) task);
-                }
-                if (task.getId() >= currentId) {
-                    currentId = task.getId() + 1;
+        List<Integer> historyIds = new ArrayList<>();
+        if (Files.exists(file)) {
+            try {
+                if (BinarySnapshot.isBinary(file)) {
+                    BinarySnapshot.read(file, this::putLoaded, historyIds);
+                } else {
+                    CsvSnapshotReader.read(file, this::putLoaded, historyIds);
                 }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при чтении файла: " + e.getMessage());
             }
-            for (Subtask sub : subtasks.values()) {
-                Epic parent = epics.get(sub.getEpicId());
-                if (parent != null) {
-                    parent.addSubtask(sub);
+        }
+        if (Files.exists(journal)) {
+            replayJournal();
+        }
+        if (Files.exists(historyLog)) {
+            readHistoryLog(historyIds);
+        }
+
+        // подзадачи удалённых эпиков в журнале не перечисляются - убираем их здесь
+        subtasks.values().removeIf(sub -> !epics.containsKey(sub.getEpicId()));
+        for (Subtask sub : subtasks.values()) {
+            epics.get(sub.getEpicId()).addSubtask(sub);
+        }
+        for (Task task : tasks.values()) {
+            if (task.getStartTime() != null && task.getDuration() != null) {
+                prioritizedTasks.add(task);
+            }
+        }
+        for (Subtask sub : subtasks.values()) {
+            if (sub.getStartTime() != null && sub.getDuration() != null) {
+                prioritizedTasks.add(sub);
+            }
+        }
+        reindex();
+        for (int id : historyIds) {
+            if (tasks.containsKey(id)) {
+                historyManager.add(tasks.get(id));
+            } else if (epics.containsKey(id)) {
+                historyManager.add(epics.get(id));
+            } else if (subtasks.containsKey(id)) {
+                historyManager.add(subtasks.get(id));
+            }
+        }
+    }
+
+    // Последняя строка журнала могла быть дописана не до конца (процесс упал посреди записи): такая запись
+    // отбрасывается, а журнал обрезается до последней целой. Испорченная запись в середине - ошибка.
+    private void replayJournal() {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(journal);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала: " + e.getMessage(), e);
+        }
+        int pos = 0;
+        int goodEnd = 0;
+        while (pos < bytes.length) {
+            int newline = pos;
+            while (newline < bytes.length && bytes[newline] != '\n') newline++;
+            int next = Math.min(newline + 1, bytes.length);
+            String line = new String(bytes, pos, newline - pos, StandardCharsets.UTF_8).strip();
+            if (!line.isEmpty()) {
+                try {
+                    applyJournalRecord(line);
+                } catch (RuntimeException e) {
+                    if (!isBlank(bytes, next)) {
+                        throw new ManagerSaveException("Испорченная запись в журнале: " + line, e);
+                    }
+                    truncateJournal(goodEnd);
+                    return;
                 }
+                journalSize++;
             }
-            String historyLine = reader.readLine();
-            if (historyLine != null && !historyLine.isBlank()) {
-                for (String idStr : historyLine.split(",")) {
-                    int id = Integer.parseInt(idStr.trim());
-                    if (tasks.containsKey(id)) {
-                        historyManager.add(tasks.get(id));
-                    } else if (epics.containsKey(id)) {
-                        historyManager.add(epics.get(id));
-                    } else if (subtasks.containsKey(id)) {
-                        historyManager.add(subtasks.get(id));
+            goodEnd = next;
+            pos = next;
+        }
+    }
+
+    private void applyJournalRecord(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) throw new IllegalArgumentException("Нет типа записи");
+        String op = line.substring(0, comma);
+        String arg = line.substring(comma + 1);
+        // сначала разбор, потом изменение: недописанная запись не должна применяться частично
+        switch (op) {
+            case "PUT" -> putLoaded(taskFromString(arg));
+            case "DEL" -> {
+                int id = Integer.parseInt(arg);
+                tasks.remove(id);
+                epics.remove(id);
+                subtasks.remove(id);
+            }
+            case "CLEAR" -> {
+                switch (TaskType.valueOf(arg)) {
+                    case TASK -> tasks.clear();
+                    case EPIC -> {
+                        epics.clear();
+                        subtasks.clear();
                     }
+                    case SUBTASK -> subtasks.clear();
                 }
             }
+            default -> throw new IllegalArgumentException("Неизвестная запись в журнале: " + line);
+        }
+    }
+
+    private static boolean isBlank(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (!Character.isWhitespace(bytes[i])) return false;
+        }
+        return true;
+    }
+
+    private void truncateJournal(long size) {
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при обрезке журнала: " + e.getMessage(), e);
+        }
+    }
+
+    private void readHistoryLog(List<Integer> historyIds) {
+        try (BufferedReader reader = Files.newBufferedReader(historyLog, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                historyIds.add(Integer.parseInt(line.trim()));
+                historyLogSize++;
+            }
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при чтении файла: " + e.getMessage());
+            throw new ManagerSaveException("Ошибка при чтении истории: " + e.getMessage(), e);
+        }
+    }
+
+    private void putLoaded(Task task) {
+        switch (task.getType()) {
+            case TASK -> tasks.put(task.getId(), task);
+            case EPIC -> epics.put(task.getId(), (Epic) task);
+            case SUBTASK -> subtasks.put(task.getId(), (Subtask) task);
+        }
+        if (task.getId() >= currentId) {
+            currentId = task.getId() + 1;
         }
     }
 
@@ -209,7 +558,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
     }
 
     private static Task taskFromString(String line) {
-        String[] p = line.split(",", -1);
+        String[] p = splitEscaped(line);
         TaskType type = TaskType.valueOf(p[0]);
         int id = Integer.parseInt(p[1]);
         String name = unescape(p[2]);
@@ -237,7 +586,33 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return v.replace("\\", "\\\\").replace(",", "\\,");
     }
 
-    private static String unescape(String v) {
-        return v.replace("\\,", ",").replace("\\\\", "\\");
+    static String unescape(String v) {
+        if (v.indexOf('\\') < 0) return v;
+        StringBuilder sb = new StringBuilder(v.length());
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '\\' && i + 1 < v.length()) {
+                c = v.charAt(++i);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // split(",") резал экранированные запятые внутри имени и описания
+    private static String[] splitEscaped(String line) {
+        List<String> parts = new ArrayList<>(8);
+        int from = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ',') {
+                parts.add(line.substring(from, i));
+                from = i + 1;
+            }
+        }
+        parts.add(line.substring(from));
+        return parts.toArray(new String[0]);
     }
 }
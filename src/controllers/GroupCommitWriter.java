@@ -0,0 +1,222 @@
+package controllers;
+
+import exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Фоновый поток записи для FileBackedTaskManager. Операции выполняются строго в порядке поступления:
+// строки журналов, идущие подряд, сливаются в одну запись на файл, снапшот разрывает пачку.
+// Снапшот содержит всё состояние и удаляет журналы, поэтому всё, что стоит в очереди перед ещё не записанным
+// снапшотом (строки журналов, другие снапшоты), пропускается. Барьер flush() эту замену останавливает:
+// то, что поставлено до него, записывается как есть.
+class GroupCommitWriter implements AutoCloseable {
+
+    interface IoAction {
+        void run() throws IOException;
+    }
+
+    private interface Op {
+    }
+
+    // epoch - номер последнего снапшота (или барьера) на момент постановки в очередь
+    private record Append(Path target, String line, long epoch) implements Op {
+    }
+
+    private static final class Action implements Op {
+        final long epoch;
+        // null - заменён более новым снапшотом, байты уже не нужны
+        volatile IoAction action;
+
+        Action(long epoch, IoAction action) {
+            this.epoch = epoch;
+            this.action = action;
+        }
+    }
+
+    private record Barrier(CompletableFuture<Void> done, long epoch) implements Op {
+    }
+
+    private record Stop() implements Op {
+    }
+
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final AsyncPersistence options;
+    private final Thread thread;
+    private volatile boolean closed;
+    // номера растут с каждым снапшотом и барьером; меняются под монитором вместе с постановкой в очередь
+    private long epoch;
+    private volatile long latestSnapshot;
+    // барьеры, которые ещё в очереди: номер барьера -> номер последнего снапшота перед ним
+    private final ConcurrentNavigableMap<Long, Long> pendingBarriers = new ConcurrentSkipListMap<>();
+    private Action pendingSnapshot;
+    // первая ошибка после последнего барьера - её получит ближайший flush()
+    private ManagerSaveException failure;
+
+    GroupCommitWriter(AsyncPersistence options, String name) {
+        this.options = options;
+        this.thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void append(Path target, String line) {
+        enqueue(new Append(target, line, epoch));
+    }
+
+    synchronized void submit(IoAction action) {
+        enqueue(new Action(epoch, action));
+    }
+
+    // действие пишет полный снапшот: заменяет собой всё, что ещё не записано после последнего барьера
+    synchronized void submitSnapshot(IoAction action) {
+        Action snapshot = new Action(epoch + 1, action);
+        enqueue(snapshot);
+        epoch++;
+        latestSnapshot = epoch;
+        if (pendingSnapshot != null) {
+            pendingSnapshot.action = null;
+        }
+        pendingSnapshot = snapshot;
+    }
+
+    // завершится, когда всё поставленное в очередь до вызова окажется на диске
+    synchronized CompletableFuture<Void> flush() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (closed) {
+            done.complete(null);
+        } else {
+            epoch++;
+            pendingBarriers.put(epoch, latestSnapshot);
+            queue.add(new Barrier(done, epoch));
+            pendingSnapshot = null;
+        }
+        return done;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        queue.add(new Stop());
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Op op) {
+        if (closed) {
+            throw new ManagerSaveException("Запись в закрытый менеджер");
+        }
+        queue.add(op);
+    }
+
+    private void loop() {
+        List<Op> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+                collect(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                running &= !(batch.get(batch.size() - 1) instanceof Stop);
+                process(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // добираем пачку, пока не истекло окно и не набран maxBatch; барьер и остановка пачку закрывают
+    private void collect(List<Op> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + options.window().toNanos();
+        while (batch.size() < options.maxBatch()) {
+            Op last = batch.get(batch.size() - 1);
+            if (last instanceof Barrier || last instanceof Stop) return;
+            long left = deadline - System.nanoTime();
+            Op next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    // после операции и до ближайшего барьера за ней в очереди есть снапшот.
+    // latestSnapshot читается первым: барьер, поставленный после этого, найдётся в pendingBarriers
+    private boolean superseded(long opEpoch) {
+        long snapshot = latestSnapshot;
+        Map.Entry<Long, Long> barrier = pendingBarriers.higherEntry(opEpoch);
+        return opEpoch < (barrier == null ? snapshot : barrier.getValue());
+    }
+
+    private void process(List<Op> batch) {
+        Map<Path, StringBuilder> pending = new LinkedHashMap<>();
+        for (Op op : batch) {
+            if (op instanceof Append append) {
+                if (superseded(append.epoch())) continue;
+                pending.computeIfAbsent(append.target(), p -> new StringBuilder())
+                        .append(append.line()).append(System.lineSeparator());
+            } else if (op instanceof Action action) {
+                IoAction io = action.action;
+                if (io == null || superseded(action.epoch)) continue;
+                writePending(pending);
+                try {
+                    io.run();
+                } catch (IOException | RuntimeException e) {
+                    report(e);
+                }
+            } else if (op instanceof Barrier barrier) {
+                writePending(pending);
+                pendingBarriers.remove(barrier.epoch());
+                if (failure == null) {
+                    barrier.done().complete(null);
+                } else {
+                    barrier.done().completeExceptionally(failure);
+                    failure = null;
+                }
+            }
+        }
+        writePending(pending);
+    }
+
+    private void report(Exception e) {
+        ManagerSaveException error = e instanceof ManagerSaveException mse ? mse
+                : new ManagerSaveException("Ошибка фоновой записи: " + e.getMessage(), e);
+        if (failure == null) {
+            failure = error;
+        }
+        options.onError().accept(error);
+    }
+
+    private void writePending(Map<Path, StringBuilder> pending) {
+        for (Map.Entry<Path, StringBuilder> entry : pending.entrySet()) {
+            try (FileChannel channel = FileChannel.open(entry.getKey(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer bytes = ByteBuffer.wrap(entry.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (options.fsync()) {
+                    channel.force(false);
+                }
+            } catch (IOException | RuntimeException e) {
+                report(e);
+            }
+        }
+        pending.clear();
+    }
+}
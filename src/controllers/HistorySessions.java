@@ -0,0 +1,111 @@
+package controllers;
+
+import models.Task;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Истории просмотров по клиентам: у каждой сессии своя история на capacity записей.
+// Сессии, к которым не обращались дольше idleTimeout, удаляются; сессий не больше maxSessions -
+// при переполнении вытесняется та, к которой обращались давнее всего.
+// Итого в памяти не больше maxSessions * capacity записей истории.
+public class HistorySessions {
+    public static final int DEFAULT_CAPACITY = 100;
+    public static final int DEFAULT_MAX_SESSIONS = 1_000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private static class Session {
+        final HistoryManager history;
+        volatile long lastAccess;
+
+        Session(HistoryManager history, long now) {
+            this.history = history;
+            this.lastAccess = now;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final int maxSessions;
+    private final long idleNanos;
+    private final LongSupplier clock;
+
+    public HistorySessions() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public HistorySessions(int capacity, int maxSessions, Duration idleTimeout) {
+        this(capacity, maxSessions, idleTimeout, System::nanoTime);
+    }
+
+    HistorySessions(int capacity, int maxSessions, Duration idleTimeout, LongSupplier clock) {
+        if (capacity <= 0 || maxSessions <= 0) {
+            throw new IllegalArgumentException("Размер истории и число сессий должны быть положительными");
+        }
+        this.capacity = capacity;
+        this.maxSessions = maxSessions;
+        this.idleNanos = idleTimeout.toNanos();
+        this.clock = clock;
+    }
+
+    public void add(String key, Task task) {
+        if (task == null) return;
+        Session session = session(key, true);
+        synchronized (session) {
+            session.history.add(task);
+        }
+    }
+
+    public List<Task> getHistory(String key) {
+        Session session = session(key, false);
+        if (session == null) return List.of();
+        synchronized (session) {
+            return session.history.getHistory();
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private Session session(String key, boolean create) {
+        if (key == null || key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Некорректный ключ сессии");
+        }
+        long now = clock.getAsLong();
+        Session session = sessions.get(key);
+        if (session != null && now - session.lastAccess > idleNanos) {
+            sessions.remove(key, session);
+            session = null;
+        }
+        if (session == null) {
+            if (!create) return null;
+            session = sessions.computeIfAbsent(key, k -> new Session(new InMemoryHistoryManager(capacity), now));
+            if (sessions.size() > maxSessions) {
+                evict(key, now);
+            }
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    // вызывается только при появлении новой сессии, поэтому полный проход по ним допустим
+    private void evict(String current, long now) {
+        sessions.entrySet().removeIf(e -> now - e.getValue().lastAccess > idleNanos);
+        while (sessions.size() > maxSessions) {
+            Map.Entry<String, Session> oldest = null;
+            for (Map.Entry<String, Session> e : sessions.entrySet()) {
+                if (!e.getKey().equals(current)
+                        && (oldest == null || e.getValue().lastAccess < oldest.getValue().lastAccess)) {
+                    oldest = e;
+                }
+            }
+            if (oldest == null) return;
+            sessions.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+}
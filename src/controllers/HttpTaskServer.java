@@ -9,27 +9,78 @@ import exceptions.NotFoundException;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     public static final int PORT = 8080;
+    public static final int DEFAULT_BACKLOG = 128;
     private final HttpServer server;
     private final TaskManager manager;
-    private static final Gson gson = GsonFactory.build();
+    private final ExecutorService executor;
+    private final List<BaseHttpHandler> handlers = new ArrayList<>();
+    private static final Gson gson = GsonFactory.buildCompact();
 
     public HttpTaskServer() throws IOException {
-        this(Managers.getDefault());
+        this(Managers.getConcurrent());
     }
 
     public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, virtualThreadExecutor(), DEFAULT_BACKLOG);
+    }
+
+    public HttpTaskServer(TaskManager manager, ExecutorService executor, int backlog) throws IOException {
         this.manager = manager;
-        this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        this.executor = executor;
+        this.server = HttpServer.create(new InetSocketAddress(PORT), backlog);
+        server.setExecutor(executor);
+
+        register("/tasks", new TasksHandler(manager, gson));
+        register("/subtasks", new SubtasksHandler(manager, gson));
+        register("/epics", new EpicsHandler(manager, gson));
+        register("/history", new HistoryHandler(manager, gson));
+        register("/prioritized", new PrioritizedHandler(manager, gson));
+        register("/search", new SearchHandler(manager, gson));
+    }
+
+    // Поток на каждый запрос; на JDK без виртуальных потоков (до 21) - обычный кэширующий пул
+    public static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // Переполненная очередь обрабатывается в потоке-диспетчере, что притормаживает приём новых соединений
+    public static ExecutorService boundedExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Порог сжатия ответов gzip для всех обработчиков, см. BaseHttpHandler.setCompressionThreshold
+    public void setCompressionThreshold(int bytes) {
+        for (BaseHttpHandler handler : handlers) {
+            handler.setCompressionThreshold(bytes);
+        }
+    }
 
-        server.createContext("/tasks", new TasksHandler(manager, gson));
-        server.createContext("/subtasks", new SubtasksHandler(manager, gson));
-        server.createContext("/epics", new EpicsHandler(manager, gson));
-        server.createContext("/history", new HistoryHandler(manager, gson));
-        server.createContext("/prioritized", new PrioritizedHandler(manager, gson));
+    // обращения к менеджеру без собственной синхронизации обработчики сами делают под его монитором,
+    // см. BaseHttpHandler.call
+    private void register(String path, BaseHttpHandler handler) {
+        handlers.add(handler);
+        server.createContext(path, handler);
     }
 
     public void start() {
@@ -39,6 +90,7 @@ public class HttpTaskServer {
 
     public void stop() {
         server.stop(0);
+        executor.shutdown();
         System.out.println("HTTP-сервер остановлен");
     }
 
@@ -50,42 +102,51 @@ public class HttpTaskServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             try {
+                if (isBatch(exchange)) {
+                    handleBatch(exchange, Task[].class);
+                    return;
+                }
                 String method = exchange.getRequestMethod();
                 String query = exchange.getRequestURI().getQuery();
 
                 if ("GET".equals(method)) {
                     if (query != null && query.startsWith("id=")) {
                         int id = getIdFromQuery(query);
-                        Task task = manager.getTask(id);
-                        sendText(exchange, gson.toJson(task), 200);
+                        Task task = call(() -> manager.getTask(id, getSession(exchange)));
+                        sendJson(exchange, task, 200);
                     } else {
-                        sendText(exchange, gson.toJson(manager.getAllTasks()), 200);
+                        Page page = getPage(query);
+                        if (notModified(exchange, query, TaskCollection.TASKS)) return;
+                        if (page == null) {
+                            sendCollection(exchange, TaskCollection.TASKS, manager::getAllTasks);
+                        } else {
+                            sendJson(exchange, call(() -> manager.listTasks(page.afterId(), page.limit(), page.status())), 200);
+                        }
                     }
                 } else if ("POST".equals(method)) {
                     String body = readBody(exchange);
                     Task task = gson.fromJson(body, Task.class);
+                    // менеджер сам сообщает, сохранил ли задачу: проверка заранее не защищает от параллельных запросов
                     if (task.getId() == 0) {
-                        if (manager instanceof InMemoryTaskManager imtm && imtm.hasIntersections(task)) {
+                        if (!call(() -> manager.createTask(task))) {
                             sendHasIntersections(exchange);
                             return;
                         }
-                        manager.createTask(task);
                         sendText(exchange, "Created", 201);
                     } else {
-                        if (manager instanceof InMemoryTaskManager imtm && imtm.hasIntersections(task)) {
+                        if (!call(() -> manager.updateTask(task))) {
                             sendHasIntersections(exchange);
                             return;
                         }
-                        manager.updateTask(task);
                         sendText(exchange, "Updated", 201);
                     }
                 } else if ("DELETE".equals(method)) {
                     if (query != null && query.startsWith("id=")) {
                         int id = getIdFromQuery(query);
-                        manager.deleteTaskById(id);
+                        run(() -> manager.deleteTaskById(id));
                         sendText(exchange, "Deleted", 200);
                     } else {
-                        manager.clearTasks();
+                        run(manager::clearTasks);
                         sendText(exchange, "All tasks deleted", 200);
                     }
                 } else {
@@ -93,6 +154,8 @@ public class HttpTaskServer {
                 }
             } catch (NotFoundException nfe) {
                 sendNotFound(exchange, nfe.getMessage());
+            } catch (IllegalArgumentException iae) {
+                sendBadRequest(exchange, "Bad Request");
             } catch (Exception ex) {
                 sendServerError(exchange, "Internal Server Error");
             }
@@ -107,42 +170,50 @@ public class HttpTaskServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             try {
+                if (isBatch(exchange)) {
+                    handleBatch(exchange, Subtask[].class);
+                    return;
+                }
                 String method = exchange.getRequestMethod();
                 String query = exchange.getRequestURI().getQuery();
 
                 if ("GET".equals(method)) {
                     if (query != null && query.startsWith("id=")) {
                         int id = getIdFromQuery(query);
-                        Subtask subtask = manager.getSubtask(id);
-                        sendText(exchange, gson.toJson(subtask), 200);
+                        Subtask subtask = call(() -> manager.getSubtask(id, getSession(exchange)));
+                        sendJson(exchange, subtask, 200);
                     } else {
-                        sendText(exchange, gson.toJson(manager.getAllSubtasks()), 200);
+                        Page page = getPage(query);
+                        if (notModified(exchange, query, TaskCollection.SUBTASKS)) return;
+                        if (page == null) {
+                            sendCollection(exchange, TaskCollection.SUBTASKS, manager::getAllSubtasks);
+                        } else {
+                            sendJson(exchange, call(() -> manager.listSubtasks(page.afterId(), page.limit(), page.status())), 200);
+                        }
                     }
                 } else if ("POST".equals(method)) {
                     String body = readBody(exchange);
                     Subtask subtask = gson.fromJson(body, Subtask.class);
                     if (subtask.getId() == 0) {
-                        if (manager instanceof InMemoryTaskManager imtm && imtm.hasIntersections(subtask)) {
+                        if (!call(() -> manager.createSubtask(subtask))) {
                             sendHasIntersections(exchange);
                             return;
                         }
-                        manager.createSubtask(subtask);
                         sendText(exchange, "Created", 201);
                     } else {
-                        if (manager instanceof InMemoryTaskManager imtm && imtm.hasIntersections(subtask)) {
+                        if (!call(() -> manager.updateSubtask(subtask))) {
                             sendHasIntersections(exchange);
                             return;
                         }
-                        manager.updateSubtask(subtask);
                         sendText(exchange, "Updated", 201);
                     }
                 } else if ("DELETE".equals(method)) {
                     if (query != null && query.startsWith("id=")) {
                         int id = getIdFromQuery(query);
-                        manager.deleteSubtaskById(id);
+                        run(() -> manager.deleteSubtaskById(id));
                         sendText(exchange, "Deleted", 200);
                     } else {
-                        manager.clearSubtasks();
+                        run(manager::clearSubtasks);
                         sendText(exchange, "All subtasks deleted", 200);
                     }
                 } else {
@@ -150,6 +221,8 @@ public class HttpTaskServer {
                 }
             } catch (NotFoundException nfe) {
                 sendNotFound(exchange, nfe.getMessage());
+            } catch (IllegalArgumentException iae) {
+                sendBadRequest(exchange, "Bad Request");
             } catch (Exception ex) {
                 sendServerError(exchange, "Internal Server Error");
             }
@@ -167,31 +240,47 @@ public class HttpTaskServer {
                 String method = exchange.getRequestMethod();
                 String query = exchange.getRequestURI().getQuery();
 
-                if ("GET".equals(method)) {
+                String[] path = exchange.getRequestURI().getPath().split("/");
+                if (path.length == 4 && "subtasks".equals(path[3])) {
+                    // /epics/{id}/subtasks - из индекса эпика, без прохода по всем подзадачам
+                    if (!"GET".equals(method)) {
+                        sendText(exchange, "Method Not Allowed", 405);
+                        return;
+                    }
+                    int epicId = Integer.parseInt(path[2]);
+                    if (notModified(exchange, path[2], TaskCollection.SUBTASKS)) return;
+                    sendJson(exchange, call(() -> manager.getEpicSubtasks(epicId)), 200);
+                } else if ("GET".equals(method)) {
                     if (query != null && query.startsWith("id=")) {
                         int id = getIdFromQuery(query);
-                        Epic epic = manager.getEpic(id);
-                        sendText(exchange, gson.toJson(epic), 200);
+                        Epic epic = call(() -> manager.getEpic(id, getSession(exchange)));
+                        sendJson(exchange, epic, 200);
                     } else {
-                        sendText(exchange, gson.toJson(manager.getAllEpics()), 200);
+                        Page page = getPage(query);
+                        if (notModified(exchange, query, TaskCollection.EPICS)) return;
+                        if (page == null) {
+                            sendCollection(exchange, TaskCollection.EPICS, manager::getAllEpics);
+                        } else {
+                            sendJson(exchange, call(() -> manager.listEpics(page.afterId(), page.limit(), page.status())), 200);
+                        }
                     }
                 } else if ("POST".equals(method)) {
                     String body = readBody(exchange);
                     Epic epic = gson.fromJson(body, Epic.class);
                     if (epic.getId() == 0) {
-                        manager.createEpic(epic);
+                        run(() -> manager.createEpic(epic));
                         sendText(exchange, "Created", 201);
                     } else {
-                        manager.updateEpic(epic);
+                        run(() -> manager.updateEpic(epic));
                         sendText(exchange, "Updated", 201);
                     }
                 } else if ("DELETE".equals(method)) {
                     if (query != null && query.startsWith("id=")) {
                         int id = getIdFromQuery(query);
-                        manager.deleteEpicById(id);
+                        run(() -> manager.deleteEpicById(id));
                         sendText(exchange, "Deleted", 200);
                     } else {
-                        manager.clearEpics();
+                        run(manager::clearEpics);
                         sendText(exchange, "All epics deleted", 200);
                     }
                 } else {
@@ -199,6 +288,8 @@ public class HttpTaskServer {
                 }
             } catch (NotFoundException nfe) {
                 sendNotFound(exchange, nfe.getMessage());
+            } catch (IllegalArgumentException iae) {
+                sendBadRequest(exchange, "Bad Request");
             } catch (Exception ex) {
                 sendServerError(exchange, "Internal Server Error");
             }
@@ -214,10 +305,15 @@ public class HttpTaskServer {
         public void handle(HttpExchange exchange) throws IOException {
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    sendText(exchange, gson.toJson(manager.getHistory()), 200);
+                    String session = getSession(exchange);
+                    // в истории лежат сами объекты эпиков, их статус меняется на месте
+                    if (notModified(exchange, session, TaskCollection.HISTORY, TaskCollection.EPICS)) return;
+                    sendJson(exchange, call(() -> manager.getHistory(session)), 200);
                 } else {
                     sendText(exchange, "Method Not Allowed", 405);
                 }
+            } catch (IllegalArgumentException iae) {
+                sendBadRequest(exchange, "Bad Request");
             } catch (Exception ex) {
                 sendServerError(exchange, "Internal Server Error");
             }
@@ -229,17 +325,105 @@ public class HttpTaskServer {
             super(manager, gson);
         }
 
+        private record FreeSlot(LocalDateTime start, LocalDateTime end) {
+        }
+
+        // GET /prioritized[?from=&to=] - расписание целиком или задачи, пересекающиеся с [from, to);
+        // GET /prioritized/free?duration=PT1H[&after=] - ближайший свободный слот;
+        // POST /prioritized/schedule?from=[&deadline=&workStart=09:00&workEnd=18:00] с массивом id в теле -
+        // расставить эти задачи, если у них нет времени
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             try {
                 if ("GET".equals(exchange.getRequestMethod())) {
-                    List<Task> prioritized = (manager instanceof InMemoryTaskManager imtm)
-                            ? imtm.getPrioritizedTasks()
-                            : manager.getAllTasks();
-                    sendText(exchange, gson.toJson(prioritized), 200);
+                    String query = exchange.getRequestURI().getQuery();
+                    if (!(manager instanceof InMemoryTaskManager imtm)) {
+                        sendJson(exchange, call(manager::getAllTasks), 200);
+                    } else if (exchange.getRequestURI().getPath().endsWith("/free")) {
+                        String duration = getQueryParam(query, "duration");
+                        if (duration == null) {
+                            sendBadRequest(exchange, "Bad Request");
+                            return;
+                        }
+                        Duration length = Duration.parse(duration);
+                        String after = getQueryParam(query, "after");
+                        LocalDateTime from = after == null ? LocalDateTime.now() : LocalDateTime.parse(after);
+                        LocalDateTime start = call(() -> imtm.nextFreeSlot(length, from));
+                        sendJson(exchange, new FreeSlot(start, start.plus(length)), 200);
+                    } else {
+                        String from = getQueryParam(query, "from");
+                        String to = getQueryParam(query, "to");
+                        if (notModified(exchange, query, TaskCollection.PRIORITIZED)) return;
+                        if (from == null && to == null) {
+                            sendCollection(exchange, TaskCollection.PRIORITIZED, imtm::getPrioritizedTasks);
+                        } else {
+                            LocalDateTime start = from == null ? LocalDateTime.MIN : LocalDateTime.parse(from);
+                            LocalDateTime end = to == null ? LocalDateTime.MAX : LocalDateTime.parse(to);
+                            sendJson(exchange, call(() -> imtm.getTasksBetween(start, end)), 200);
+                        }
+                    }
+                } else if ("POST".equals(exchange.getRequestMethod())
+                        && exchange.getRequestURI().getPath().endsWith("/schedule")
+                        && manager instanceof InMemoryTaskManager imtm) {
+                    String query = exchange.getRequestURI().getQuery();
+                    String from = getQueryParam(query, "from");
+                    String deadline = getQueryParam(query, "deadline");
+                    String workStart = getQueryParam(query, "workStart");
+                    String workEnd = getQueryParam(query, "workEnd");
+                    SchedulingOptions options = new SchedulingOptions(
+                            from == null ? LocalDateTime.now() : LocalDateTime.parse(from),
+                            deadline == null ? null : LocalDateTime.parse(deadline),
+                            workStart == null ? null : LocalTime.parse(workStart),
+                            workEnd == null ? null : LocalTime.parse(workEnd));
+                    int[] ids = gson.fromJson(readBody(exchange), int[].class);
+                    if (ids == null) {
+                        sendBadRequest(exchange, "Bad Request");
+                        return;
+                    }
+                    sendJson(exchange, call(() -> imtm.autoSchedule(ids, options)), 200);
+                } else {
+                    sendText(exchange, "Method Not Allowed", 405);
+                }
+            } catch (NotFoundException nfe) {
+                sendNotFound(exchange, nfe.getMessage());
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                sendBadRequest(exchange, "Bad Request");
+            } catch (Exception ex) {
+                sendServerError(exchange, "Internal Server Error");
+            }
+        }
+    }
+
+    static class SearchHandler extends BaseHttpHandler {
+        static final int DEFAULT_LIMIT = 50;
+
+        public SearchHandler(TaskManager manager, Gson gson) {
+            super(manager, gson);
+        }
+
+        // GET /search?q=слова&limit=N
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    // разбор по сырой строке: в самом запросе может встретиться закодированный '&'
+                    String rawQuery = exchange.getRequestURI().getRawQuery();
+                    String q = getQueryParam(rawQuery, "q");
+                    if (q == null) {
+                        sendBadRequest(exchange, "Bad Request");
+                        return;
+                    }
+                    String limit = getQueryParam(rawQuery, "limit");
+                    int max = limit == null ? DEFAULT_LIMIT : Integer.parseInt(limit);
+                    if (notModified(exchange, rawQuery,
+                            TaskCollection.TASKS, TaskCollection.EPICS, TaskCollection.SUBTASKS)) return;
+                    String text = URLDecoder.decode(q, StandardCharsets.UTF_8);
+                    sendJson(exchange, call(() -> manager.search(text, max)), 200);
                 } else {
                     sendText(exchange, "Method Not Allowed", 405);
                 }
+            } catch (IllegalArgumentException iae) {
+                sendBadRequest(exchange, "Bad Request");
             } catch (Exception ex) {
                 sendServerError(exchange, "Internal Server Error");
             }
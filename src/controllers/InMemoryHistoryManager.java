@@ -4,74 +4,130 @@ import models.Task;
 
 import java.util.*;
 
+// История просмотров с вытеснением давно просмотренных задач, когда записей больше capacity.
+// Двусвязный список хранится в массивах (номер ячейки вместо ссылки на узел), освободившиеся ячейки
+// переиспользуются, а индекс id -> ячейка не упаковывает ключи: add и remove не создают объектов.
 public class InMemoryHistoryManager implements HistoryManager {
 
-    private static class Node {
-        Task task;
-        Node prev;
-        Node next;
+    public static final int DEFAULT_CAPACITY = 10_000;
+    private static final int NONE = -1;
+    private static final int INITIAL_SLOTS = 16;
 
-        Node(Node prev, Task task, Node next) {
-            this.task = task;
-            this.prev = prev;
-            this.next = next;
+    private final int capacity;
+    private final IntIntMap index;
+    private Task[] tasks;
+    private int[] prev;
+    private int[] next;
+    private int head = NONE;
+    private int tail = NONE;
+    private int free = NONE; // список свободных ячеек через next
+    private int used; // ячейки, которые хоть раз выдавались
+    private int size;
+
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
         }
+        this.capacity = capacity;
+        int slots = Math.min(capacity, INITIAL_SLOTS);
+        this.index = new IntIntMap(slots);
+        this.tasks = new Task[slots];
+        this.prev = new int[slots];
+        this.next = new int[slots];
     }
 
-    protected final Map<Integer, Node> nodeMap = new HashMap<>();
-    private Node head;
-    private Node tail;
+    public int getCapacity() {
+        return capacity;
+    }
 
     @Override
     public void add(Task task) {
         if (task == null) return;
 
         int id = task.getId();
-        remove(id); // если задача уже есть в истории — удалим
-
-        Node newNode = new Node(tail, task, null);
-        if (tail != null) {
-            tail.next = newNode;
+        int slot = index.get(id);
+        if (slot != IntIntMap.MISSING) {
+            unlink(slot); // если задача уже есть в истории — перенесём в конец
         } else {
-            head = newNode; // первая запись
+            if (size == capacity) {
+                slot = head; // вытесняем самую давнюю
+                index.remove(tasks[slot].getId());
+                unlink(slot);
+            } else {
+                slot = allocate();
+                size++;
+            }
+            index.put(id, slot);
         }
-        tail = newNode;
-        nodeMap.put(id, newNode);
+        tasks[slot] = task;
+        linkLast(slot);
     }
 
     @Override
     public void remove(int id) {
-        Node node = nodeMap.remove(id);
-        if (node != null) {
-            removeNode(node);
+        int slot = index.remove(id);
+        if (slot == IntIntMap.MISSING) return;
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> result = new ArrayList<>(size);
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            result.add(tasks[slot]);
         }
+        return result;
     }
 
-    private void removeNode(Node node) {
-        Node prev = node.prev;
-        Node next = node.next;
+    private int allocate() {
+        if (free != NONE) {
+            int slot = free;
+            free = next[slot];
+            return slot;
+        }
+        if (used == tasks.length) {
+            // ячейки добавляются удвоением до capacity, дальше только переиспользуются
+            int grown = (int) Math.min(capacity, 2L * tasks.length);
+            tasks = Arrays.copyOf(tasks, grown);
+            prev = Arrays.copyOf(prev, grown);
+            next = Arrays.copyOf(next, grown);
+        }
+        return used++;
+    }
 
-        if (prev != null) {
-            prev.next = next;
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail != NONE) {
+            next[tail] = slot;
         } else {
-            head = next; // если удаляем голову
+            head = slot; // первая запись
         }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
 
-        if (next != null) {
-            next.prev = prev;
+        if (p != NONE) {
+            next[p] = n;
         } else {
-            tail = prev; // если удаляем хвост
+            head = n; // если удаляем голову
         }
-    }
 
-    @Override
-    public List<Task> getHistory() {
-        List<Task> result = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            result.add(current.task);
-            current = current.next;
+        if (n != NONE) {
+            prev[n] = p;
+        } else {
+            tail = p; // если удаляем хвост
         }
-        return result;
     }
 }
@@ -1,19 +1,18 @@
 package controllers;
 
 import models.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import exceptions.*;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected HistoryManager historyManager = Managers.getDefaultHistory();
-    protected int currentId = 1;
-
-    protected final Set<Task> prioritizedTasks = new TreeSet<>((a, b) -> {
+    protected static final Comparator<Task> PRIORITY_ORDER = (a, b) -> {
         LocalDateTime at = a.getStartTime();
         LocalDateTime bt = b.getStartTime();
         if (at == null && bt == null) return Integer.compare(a.getId(), b.getId());
@@ -22,40 +21,105 @@ public class InMemoryTaskManager implements TaskManager {
         int cmp = at.compareTo(bt);
         if (cmp != 0) return cmp;
         return Integer.compare(a.getId(), b.getId());
-    });
+    };
+
+    // упорядочены по id - на этом строится постраничная выдача
+    protected final NavigableMap<Integer, Task> tasks;
+    protected final NavigableMap<Integer, Epic> epics;
+    protected final NavigableMap<Integer, Subtask> subtasks;
+    protected HistoryManager historyManager = Managers.getDefaultHistory();
+    // истории отдельных клиентов; удалённые задачи из них не вычищаются, а отфильтровываются при чтении
+    protected HistorySessions historySessions = new HistorySessions();
+    protected int currentId = 1;
+
+    // задачи в наборе не пересекаются, поэтому по началу они упорядочены и по концу
+    protected final NavigableSet<Task> prioritizedTasks;
+
+    // вторичные индексы по статусу; подзадачи эпика индексирует сам эпик (Epic.getSubtasks)
+    protected final StatusIndex<Task> tasksByStatus;
+    protected final StatusIndex<Epic> epicsByStatus;
+    protected final StatusIndex<Subtask> subtasksByStatus;
+    // полнотекстовый индекс по имени и описанию задач всех типов
+    protected final SearchIndex textIndex = new SearchIndex();
+
+    // версии коллекций и неизменяемые копии списков, собранные при такой версии:
+    // пока изменений не было, getAll* и getPrioritizedTasks отдают один и тот же список
+    private final AtomicLongArray versions = new AtomicLongArray(TaskCollection.values().length);
+    private volatile View<Task> tasksView;
+    private volatile View<Epic> epicsView;
+    private volatile View<Subtask> subtasksView;
+    private volatile View<Task> prioritizedView;
+
+    private record View<T>(long version, List<T> list) {
+    }
+
+    public InMemoryTaskManager() {
+        this(new TreeMap<>(), new TreeMap<>(), new TreeMap<>(), new TreeSet<>(PRIORITY_ORDER));
+    }
+
+    protected InMemoryTaskManager(NavigableMap<Integer, Task> tasks, NavigableMap<Integer, Epic> epics,
+                                  NavigableMap<Integer, Subtask> subtasks, NavigableSet<Task> prioritizedTasks) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.prioritizedTasks = prioritizedTasks;
+        boolean concurrent = tasks instanceof ConcurrentNavigableMap;
+        this.tasksByStatus = new StatusIndex<>(concurrent ? ConcurrentSkipListMap::new : TreeMap::new);
+        this.epicsByStatus = new StatusIndex<>(concurrent ? ConcurrentSkipListMap::new : TreeMap::new);
+        this.subtasksByStatus = new StatusIndex<>(concurrent ? ConcurrentSkipListMap::new : TreeMap::new);
+    }
+
+    // Перестроение индексов после загрузки в обход create*
+    protected void reindex() {
+        tasksByStatus.clear();
+        epicsByStatus.clear();
+        subtasksByStatus.clear();
+        textIndex.clear();
+        tasks.values().forEach(tasksByStatus::put);
+        epics.values().forEach(epicsByStatus::put);
+        subtasks.values().forEach(subtasksByStatus::put);
+        tasks.values().forEach(textIndex::put);
+        epics.values().forEach(textIndex::put);
+        subtasks.values().forEach(textIndex::put);
+    }
 
     protected int generateId() {
         return currentId++;
     }
 
     @Override
-    public void createTask(Task task) {
+    public boolean createTask(Task task) {
         task.setId(generateId());
-        if (canBeAdded(task)) {
-            tasks.put(task.getId(), task);
-            if (task.getStartTime() != null && task.getDuration() != null) {
-                prioritizedTasks.add(task);
-            }
-        }
+        if (!reschedule(null, task)) return false;
+        tasks.put(task.getId(), task);
+        tasksByStatus.put(task);
+        textIndex.put(task);
+        changed(TaskCollection.TASKS, TaskCollection.PRIORITIZED);
+        return true;
     }
 
     @Override
     public void createEpic(Epic epic) {
         epic.setId(generateId());
         epics.put(epic.getId(), epic);
+        epicsByStatus.put(epic);
+        textIndex.put(epic);
+        changed(TaskCollection.EPICS);
     }
 
     @Override
-    public void createSubtask(Subtask subtask) {
+    public boolean createSubtask(Subtask subtask) {
         subtask.setId(generateId());
         Epic epic = epics.get(subtask.getEpicId());
-        if (epic != null && canBeAdded(subtask)) {
-            subtasks.put(subtask.getId(), subtask);
-            epic.addSubtask(subtask);
-            if (subtask.getStartTime() != null && subtask.getDuration() != null) {
-                prioritizedTasks.add(subtask);
-            }
-        }
+        if (epic == null) throw new NotFoundException("Epic not found with id=" + subtask.getEpicId());
+        if (!reschedule(null, subtask)) return false;
+        subtasks.put(subtask.getId(), subtask);
+        subtasksByStatus.put(subtask);
+        textIndex.put(subtask);
+        epic.addSubtask(subtask);
+        epicsByStatus.put(epic);
+        changed(TaskCollection.SUBTASKS, TaskCollection.EPICS, TaskCollection.PRIORITIZED);
+        return true;
     }
 
     @Override
@@ -63,6 +127,7 @@ public class InMemoryTaskManager implements TaskManager {
         Task task = tasks.get(id);
         if (task == null) throw new NotFoundException("Task not found with id=" + id);
         historyManager.add(task);
+        changed(TaskCollection.HISTORY);
         return task;
     }
 
@@ -71,6 +136,7 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(id);
         if (epic == null) throw new NotFoundException("Epic not found with id=" + id);
         historyManager.add(epic);
+        changed(TaskCollection.HISTORY);
         return epic;
     }
 
@@ -79,6 +145,7 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask subtask = subtasks.get(id);
         if (subtask == null) throw new NotFoundException("Subtask not found with id=" + id);
         historyManager.add(subtask);
+        changed(TaskCollection.HISTORY);
         return subtask;
     }
 
@@ -87,128 +154,486 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    public void setHistorySessions(HistorySessions historySessions) {
+        this.historySessions = historySessions;
+    }
+
     @Override
-    public void updateTask(Task task) {
-        if (!tasks.containsKey(task.getId())) return;
+    public Task getTask(int id, String session) {
+        if (session == null) return getTask(id);
+        Task task = tasks.get(id);
+        if (task == null) throw new NotFoundException("Task not found with id=" + id);
+        historySessions.add(session, task);
+        changed(TaskCollection.HISTORY);
+        return task;
+    }
 
-        if (canBeAdded(task)) {
-            prioritizedTasks.remove(tasks.get(task.getId()));
-            tasks.put(task.getId(), task);
-            if (task.getStartTime() != null && task.getDuration() != null) {
-                prioritizedTasks.add(task);
-            }
-        }
+    @Override
+    public Epic getEpic(int id, String session) {
+        if (session == null) return getEpic(id);
+        Epic epic = epics.get(id);
+        if (epic == null) throw new NotFoundException("Epic not found with id=" + id);
+        historySessions.add(session, epic);
+        changed(TaskCollection.HISTORY);
+        return epic;
+    }
+
+    @Override
+    public Subtask getSubtask(int id, String session) {
+        if (session == null) return getSubtask(id);
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) throw new NotFoundException("Subtask not found with id=" + id);
+        historySessions.add(session, subtask);
+        changed(TaskCollection.HISTORY);
+        return subtask;
+    }
+
+    @Override
+    public List<Task> getHistory(String session) {
+        if (session == null) return getHistory();
+        List<Task> history = new ArrayList<>(historySessions.getHistory(session));
+        // id не переиспользуются, поэтому отсутствие в хранилище означает удаление
+        history.removeIf(t -> !tasks.containsKey(t.getId()) && !epics.containsKey(t.getId())
+                && !subtasks.containsKey(t.getId()));
+        return history;
+    }
+
+    @Override
+    public boolean updateTask(Task task) {
+        if (!tasks.containsKey(task.getId())) throw new NotFoundException("Task not found with id=" + task.getId());
+
+        if (!reschedule(tasks.get(task.getId()), task)) return false;
+        tasks.put(task.getId(), task);
+        tasksByStatus.put(task);
+        textIndex.put(task);
+        changed(TaskCollection.TASKS, TaskCollection.PRIORITIZED);
+        return true;
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        if (!epics.containsKey(epic.getId())) return;
-        epics.put(epic.getId(), epic);
+        Epic stored = epics.get(epic.getId());
+        if (stored == null) throw new NotFoundException("Epic not found with id=" + epic.getId());
+        // статус, время и подзадачи эпика считаются менеджером, меняются только имя и описание
+        stored.setName(epic.getName());
+        stored.setDescription(epic.getDescription());
+        textIndex.put(stored);
+        changed(TaskCollection.EPICS);
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) {
-        if (!subtasks.containsKey(subtask.getId())) return;
+    public boolean updateSubtask(Subtask subtask) {
+        Subtask old = subtasks.get(subtask.getId());
+        if (old == null) throw new NotFoundException("Subtask not found with id=" + subtask.getId());
+        if (!epics.containsKey(subtask.getEpicId())) {
+            throw new NotFoundException("Epic not found with id=" + subtask.getEpicId());
+        }
 
-        if (canBeAdded(subtask)) {
-            prioritizedTasks.remove(subtasks.get(subtask.getId()));
-            subtasks.put(subtask.getId(), subtask);
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.updateStatusAndTime();
-            }
-            if (subtask.getStartTime() != null && subtask.getDuration() != null) {
-                prioritizedTasks.add(subtask);
+        if (!reschedule(old, subtask)) return false;
+        subtasks.put(subtask.getId(), subtask);
+        subtasksByStatus.put(subtask);
+        textIndex.put(subtask);
+        // эпик хранит объекты подзадач: addSubtask заменит старый объект на новый по id
+        if (old.getEpicId() != subtask.getEpicId()) {
+            Epic oldEpic = epics.get(old.getEpicId());
+            if (oldEpic != null) {
+                oldEpic.removeSubtask(old);
+                epicsByStatus.put(oldEpic);
             }
         }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.addSubtask(subtask);
+            epicsByStatus.put(epic);
+        }
+        changed(TaskCollection.SUBTASKS, TaskCollection.EPICS, TaskCollection.PRIORITIZED);
+        return true;
     }
 
     @Override
     public void deleteTaskById(int id) {
-        Task task = tasks.remove(id);
-        historyManager.remove(id);
-        if (task != null) {
-            prioritizedTasks.remove(task);
+        if (removeTask(id)) {
+            changed(TaskCollection.TASKS, TaskCollection.PRIORITIZED, TaskCollection.HISTORY);
         }
     }
 
     @Override
     public void deleteEpicById(int id) {
+        if (removeEpic(id)) {
+            changed(TaskCollection.EPICS, TaskCollection.SUBTASKS, TaskCollection.PRIORITIZED,
+                    TaskCollection.HISTORY);
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        if (removeSubtask(id)) {
+            changed(TaskCollection.SUBTASKS, TaskCollection.EPICS, TaskCollection.PRIORITIZED,
+                    TaskCollection.HISTORY);
+        }
+    }
+
+    private boolean removeTask(int id) {
+        Task task = tasks.remove(id);
+        historyManager.remove(id);
+        if (task == null) return false;
+        tasksByStatus.remove(id);
+        textIndex.remove(id);
+        unschedule(task);
+        return true;
+    }
+
+    private boolean removeEpic(int id) {
         Epic epic = epics.remove(id);
         historyManager.remove(id);
+        if (epic == null) return false;
+        epicsByStatus.remove(id);
+        textIndex.remove(id);
+        for (Subtask subtask : epic.getSubtasks()) {
+            subtasks.remove(subtask.getId());
+            subtasksByStatus.remove(subtask.getId());
+            textIndex.remove(subtask.getId());
+            historyManager.remove(subtask.getId());
+            unschedule(subtask);
+        }
+        return true;
+    }
+
+    private boolean removeSubtask(int id) {
+        Subtask subtask = subtasks.remove(id);
+        historyManager.remove(id);
+        if (subtask == null) return false;
+        subtasksByStatus.remove(id);
+        textIndex.remove(id);
+        Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
-            for (Subtask subtask : epic.getSubtasks()) {
-                subtasks.remove(subtask.getId());
-                historyManager.remove(subtask.getId());
-                prioritizedTasks.remove(subtask);
+            epic.removeSubtask(subtask);
+            epicsByStatus.put(epic);
+        }
+        unschedule(subtask);
+        return true;
+    }
+
+    @Override
+    public boolean createAll(List<? extends Task> batch) {
+        for (Task task : batch) {
+            if (task instanceof Subtask subtask && !epics.containsKey(subtask.getEpicId())) {
+                throw new NotFoundException("Epic not found with id=" + subtask.getEpicId());
             }
         }
+        // id выдаются до проверки, как и в createTask: иначе задача с чужим id не увидела бы пересечения с ним
+        for (Task task : batch) {
+            task.setId(generateId());
+        }
+        if (!fitsSchedule(batch)) return false;
+
+        for (Task task : batch) {
+            switch (task.getType()) {
+                case TASK -> {
+                    tasks.put(task.getId(), task);
+                    tasksByStatus.put(task);
+                    textIndex.put(task);
+                }
+                case EPIC -> {
+                    epics.put(task.getId(), (Epic) task);
+                    epicsByStatus.put((Epic) task);
+                    textIndex.put(task);
+                }
+                case SUBTASK -> {
+                    Subtask subtask = (Subtask) task;
+                    subtasks.put(subtask.getId(), subtask);
+                    subtasksByStatus.put(subtask);
+                    textIndex.put(subtask);
+                    Epic epic = epics.get(subtask.getEpicId());
+                    epic.addSubtask(subtask);
+                    epicsByStatus.put(epic);
+                }
+            }
+            if (task.getType() != TaskType.EPIC && task.getStartTime() != null && task.getDuration() != null) {
+                prioritizedTasks.add(task);
+            }
+        }
+        changed(TaskCollection.TASKS, TaskCollection.EPICS, TaskCollection.SUBTASKS, TaskCollection.PRIORITIZED);
+        return true;
     }
 
     @Override
-    public void deleteSubtaskById(int id) {
-        Subtask subtask = subtasks.remove(id);
-        historyManager.remove(id);
-        if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                epic.removeSubtask(subtask);
+    public void deleteByIds(int[] ids) {
+        boolean removed = false;
+        for (int id : ids) {
+            removed |= removeTask(id) || removeEpic(id) || removeSubtask(id);
+        }
+        if (removed) {
+            changed(TaskCollection.TASKS, TaskCollection.EPICS, TaskCollection.SUBTASKS,
+                    TaskCollection.PRIORITIZED, TaskCollection.HISTORY);
+        }
+    }
+
+    // Один проход по задачам пакета в порядке начала: без пересечений внутри пакета у предыдущей задачи
+    // самый поздний конец, поэтому достаточно сравнить соседей; с существующими - поиск по prioritizedTasks.
+    // O(k log k + k log n) вместо k полных проверок с вставкой по одной
+    protected boolean fitsSchedule(List<? extends Task> batch) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : batch) {
+            if (task.getType() != TaskType.EPIC && task.getStartTime() != null && task.getDuration() != null) {
+                timed.add(task);
             }
-            prioritizedTasks.remove(subtask);
         }
+        timed.sort(PRIORITY_ORDER);
+        Task previous = null;
+        for (Task task : timed) {
+            if (previous != null && isTimeIntersect(previous, task)) return false;
+            if (hasIntersections(task)) return false;
+            previous = task;
+        }
+        return true;
     }
 
     @Override
     public void clearTasks() {
         for (Task t : tasks.values()) {
-            prioritizedTasks.remove(t);
+            unschedule(t);
             historyManager.remove(t.getId());
+            textIndex.remove(t.getId());
         }
         tasks.clear();
+        tasksByStatus.clear();
+        changed(TaskCollection.TASKS, TaskCollection.PRIORITIZED, TaskCollection.HISTORY);
     }
 
     @Override
     public void clearEpics() {
         for (Epic epic : epics.values()) {
             historyManager.remove(epic.getId());
+            textIndex.remove(epic.getId());
             for (Subtask sub : epic.getSubtasks()) {
                 historyManager.remove(sub.getId());
-                prioritizedTasks.remove(sub);
+                textIndex.remove(sub.getId());
+                unschedule(sub);
             }
         }
         epics.clear();
         subtasks.clear();
+        epicsByStatus.clear();
+        subtasksByStatus.clear();
+        changed(TaskCollection.EPICS, TaskCollection.SUBTASKS, TaskCollection.PRIORITIZED,
+                TaskCollection.HISTORY);
     }
 
     @Override
     public void clearSubtasks() {
         for (Subtask s : subtasks.values()) {
             historyManager.remove(s.getId());
-            prioritizedTasks.remove(s);
+            textIndex.remove(s.getId());
+            unschedule(s);
         }
         subtasks.clear();
+        subtasksByStatus.clear();
         for (Epic epic : epics.values()) {
-            epic.updateStatusAndTime();
+            epic.clearSubtasks();
+            epicsByStatus.put(epic);
+        }
+        changed(TaskCollection.SUBTASKS, TaskCollection.EPICS, TaskCollection.PRIORITIZED,
+                TaskCollection.HISTORY);
+    }
+
+    @Override
+    public long getVersion(TaskCollection collection) {
+        return versions.get(collection.ordinal());
+    }
+
+    // вызывается после изменения: читатель, увидевший новую версию, увидит и новые данные
+    protected void changed(TaskCollection... collections) {
+        for (TaskCollection collection : collections) {
+            versions.incrementAndGet(collection.ordinal());
         }
     }
 
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        View<Task> view = tasksView;
+        long version = getVersion(TaskCollection.TASKS);
+        if (view == null || view.version() != version) {
+            view = new View<>(version, List.copyOf(tasks.values()));
+            tasksView = view;
+        }
+        return view.list();
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        View<Epic> view = epicsView;
+        long version = getVersion(TaskCollection.EPICS);
+        if (view == null || view.version() != version) {
+            view = new View<>(version, List.copyOf(epics.values()));
+            epicsView = view;
+        }
+        return view.list();
     }
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        View<Subtask> view = subtasksView;
+        long version = getVersion(TaskCollection.SUBTASKS);
+        if (view == null || view.version() != version) {
+            view = new View<>(version, List.copyOf(subtasks.values()));
+            subtasksView = view;
+        }
+        return view.list();
+    }
+
+    @Override
+    public List<Task> listTasks(int afterId, int limit, TaskStatus status) {
+        return page(status == null ? tasks : tasksByStatus.get(status), afterId, limit, status);
+    }
+
+    @Override
+    public List<Epic> listEpics(int afterId, int limit, TaskStatus status) {
+        return page(status == null ? epics : epicsByStatus.get(status), afterId, limit, status);
+    }
+
+    @Override
+    public List<Subtask> listSubtasks(int afterId, int limit, TaskStatus status) {
+        return page(status == null ? subtasks : subtasksByStatus.get(status), afterId, limit, status);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) throw new NotFoundException("Epic not found with id=" + epicId);
+        return List.copyOf(epic.getSubtasks());
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        int[] ids = textIndex.search(query, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) task = epics.get(id);
+            if (task == null) task = subtasks.get(id);
+            // задачу могли удалить между поиском и чтением
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // source - вся коллекция или корзина индекса по статусу; статус проверяется ещё раз на случай,
+    // если задачу поменяли на месте без update*
+    private static <T extends Task> List<T> page(NavigableMap<Integer, T> source, int afterId, int limit,
+                                                 TaskStatus status) {
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        for (T task : source.tailMap(afterId, false).values()) {
+            if (result.size() >= limit) break;
+            if (status == null || task.getStatus() == status) {
+                result.add(task);
+            }
+        }
+        return result;
     }
 
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        View<Task> view = prioritizedView;
+        long version = getVersion(TaskCollection.PRIORITIZED);
+        if (view == null || view.version() != version) {
+            view = new View<>(version, List.copyOf(prioritizedTasks));
+            prioritizedView = view;
+        }
+        return view.list();
+    }
+
+    // Задачи расписания, пересекающиеся с [from, to), по времени начала. Задачи в наборе не пересекаются,
+    // поэтому до from может начаться только одна из них: O(log n + k) вместо копии всего набора
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        if (!from.isBefore(to)) return result;
+        Task before = prioritizedTasks.lower(probe(from, Integer.MIN_VALUE));
+        if (before != null && before.getEndTime().isAfter(from)) {
+            result.add(before);
+        }
+        result.addAll(prioritizedTasks.subSet(
+                probe(from, Integer.MIN_VALUE), true, probe(to, Integer.MIN_VALUE), false));
+        return result;
+    }
+
+    // Самое раннее начало не раньше after, при котором задача длиной duration ни с чем не пересечётся.
+    // Стык считается пересечением (см. isTimeIntersect), поэтому после чужой задачи слот начинается
+    // со следующей минуты. Просматриваются только задачи, которые мешают, начиная с after
+    public LocalDateTime nextFreeSlot(Duration duration, LocalDateTime after) {
+        if (duration == null || duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("Длительность должна быть положительной: " + duration);
+        }
+        LocalDateTime candidate = after;
+        Task before = prioritizedTasks.floor(probe(after, Integer.MAX_VALUE));
+        if (before != null && !before.getEndTime().isBefore(candidate)) {
+            candidate = startAfter(before.getEndTime());
+        }
+        for (Task task : prioritizedTasks.tailSet(probe(after, Integer.MAX_VALUE), false)) {
+            if (candidate.plus(duration).isBefore(task.getStartTime())) break;
+            if (!task.getEndTime().isBefore(candidate)) {
+                candidate = startAfter(task.getEndTime());
+            }
+        }
+        return candidate;
+    }
+
+    // Ставит переданные задачи и подзадачи без времени начала (но с длительностью) в свободные промежутки
+    // окна, см. AutoScheduler; уже поставленные и без длительности пропускаются, что не поместилось, остаётся
+    // без времени. Остальные задачи не трогаются. Возвращает поставленные задачи по id
+    public List<Task> autoSchedule(int[] ids, SchedulingOptions options) {
+        // все id проверяются до изменений: неизвестный id не должен оставить расписание наполовину заполненным
+        List<Task> pending = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int id : ids) {
+            Task task = tasks.containsKey(id) ? tasks.get(id) : subtasks.get(id);
+            if (task == null) throw new NotFoundException("Task not found with id=" + id);
+            if (!seen.add(id)) continue;
+            if (task.getStartTime() == null && task.getDuration() != null && !task.getDuration().isNegative()) {
+                pending.add(task);
+            }
+        }
+        if (pending.isEmpty()) return List.of();
+        pending.sort(Comparator.comparingInt(Task::getId));
+
+        LocalDateTime from = options.from();
+        List<Task> busy = new ArrayList<>();
+        Task before = prioritizedTasks.floor(probe(from, Integer.MAX_VALUE));
+        if (before != null && !before.getEndTime().isBefore(from)) {
+            busy.add(before);
+        }
+        busy.addAll(options.deadline() == null
+                ? prioritizedTasks.tailSet(probe(from, Integer.MAX_VALUE), false)
+                : prioritizedTasks.subSet(probe(from, Integer.MAX_VALUE), false,
+                        probe(options.deadline(), Integer.MAX_VALUE), true));
+
+        LocalDateTime[] starts = AutoScheduler.plan(busy, pending, options);
+        List<Task> placed = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] == null) continue;
+            Task task = pending.get(i);
+            // без времени задачи не было в prioritizedTasks, поэтому её можно менять на месте
+            task.setStartTime(starts[i]);
+            prioritizedTasks.add(task);
+            if (task instanceof Subtask subtask) {
+                epics.get(subtask.getEpicId()).addSubtask(subtask);
+            }
+            placed.add(task);
+        }
+        if (!placed.isEmpty()) {
+            changed(TaskCollection.TASKS, TaskCollection.SUBTASKS, TaskCollection.EPICS, TaskCollection.PRIORITIZED);
+        }
+        return placed;
+    }
+
+    protected static LocalDateTime startAfter(LocalDateTime end) {
+        return end.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+    }
+
+    // Ключ для поиска в prioritizedTasks: при равном начале id решает, встанет он до или после задач
+    private static Task probe(LocalDateTime start, int id) {
+        return new Task(id, null, null, null, null, start);
     }
 
     protected boolean isTimeIntersect(Task a, Task b) {
@@ -218,17 +643,50 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     protected boolean hasIntersections(Task task) {
-        return prioritizedTasks.stream()
-                .filter(t -> t.getId() != task.getId())
-                .anyMatch(t -> isTimeIntersect(t, task));
+        return !findConflicts(task, 1).isEmpty();
     }
 
-    private boolean canBeAdded(Task task) {
-        if (task.getStartTime() != null && task.getDuration() != null) {
-            if (hasIntersections(task)) {
-                return false;
+    public List<Task> findConflicts(Task task) {
+        return findConflicts(task, Integer.MAX_VALUE);
+    }
+
+    // Идём влево от последней задачи, начавшейся не позже конца task, пока концы задач не станут раньше её начала:
+    // O(log n + k) вместо полного прохода по prioritizedTasks
+    private List<Task> findConflicts(Task task, int limit) {
+        List<Task> conflicts = new ArrayList<>();
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) return conflicts;
+
+        Iterator<Task> it = prioritizedTasks.headSet(probe(end, Integer.MAX_VALUE), true).descendingIterator();
+        while (it.hasNext() && conflicts.size() < limit) {
+            Task t = it.next();
+            if (t.getEndTime().isBefore(start)) break;
+            if (t.getId() != task.getId()) {
+                conflicts.add(t);
             }
         }
+        Collections.reverse(conflicts);
+        return conflicts;
+    }
+
+    // Проверка пересечений и замена old на updated в prioritizedTasks одним шагом;
+    // false - updated не помещается по времени, набор не изменился
+    protected boolean reschedule(Task old, Task updated) {
+        boolean timed = updated.getStartTime() != null && updated.getDuration() != null;
+        if (timed && hasIntersections(updated)) {
+            return false;
+        }
+        if (old != null) {
+            prioritizedTasks.remove(old);
+        }
+        if (timed) {
+            prioritizedTasks.add(updated);
+        }
         return true;
     }
+
+    protected void unschedule(Task task) {
+        prioritizedTasks.remove(task);
+    }
 }
@@ -0,0 +1,108 @@
+package controllers;
+
+import java.util.Arrays;
+
+// Отображение int -> неотрицательный int на открытой адресации с линейным пробированием,
+// без упаковки ключей и без объектов на запись. Удаление сдвигает хвост цепочки, поэтому "надгробий" нет.
+class IntIntMap {
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values; // MISSING - ячейка свободна
+    private int mask;
+    private int size;
+
+    IntIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) return MISSING;
+            if (keys[i] == key) return values[i];
+        }
+    }
+
+    void put(int key, int value) {
+        if (value < 0) throw new IllegalArgumentException("Значение должно быть неотрицательным: " + value);
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int i = slot(key);
+        while (values[i] != MISSING) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    int remove(int key) {
+        int i = slot(key);
+        while (values[i] != MISSING) {
+            if (keys[i] == key) {
+                int old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    // переносим назад записи, которые стояли дальше от своей ячейки, чем освободившееся место
+    private void shiftBack(int free) {
+        int i = free;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == MISSING) break;
+            int home = slot(keys[i]);
+            boolean between = free <= i ? (home > free && home <= i) : (home > free || home <= i);
+            if (!between) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+        }
+        values[free] = MISSING;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
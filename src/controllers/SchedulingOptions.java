@@ -0,0 +1,32 @@
+package controllers;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Окно для автопланирования: задачи ставятся не раньше from и заканчиваются не позже deadline (null - без срока),
+// а при заданных workStart/workEnd - только внутри этого интервала каждого дня
+public record SchedulingOptions(LocalDateTime from, LocalDateTime deadline, LocalTime workStart, LocalTime workEnd) {
+
+    public SchedulingOptions {
+        if (from == null) {
+            throw new IllegalArgumentException("Не задано начало окна планирования");
+        }
+        if (deadline != null && !deadline.isAfter(from)) {
+            throw new IllegalArgumentException("Срок должен быть позже начала: " + deadline);
+        }
+        if ((workStart == null) != (workEnd == null)) {
+            throw new IllegalArgumentException("Рабочие часы задаются началом и концом вместе");
+        }
+        if (workStart != null && !workStart.isBefore(workEnd)) {
+            throw new IllegalArgumentException("Рабочий день должен начинаться раньше, чем заканчивается");
+        }
+    }
+
+    public static SchedulingOptions from(LocalDateTime from) {
+        return new SchedulingOptions(from, null, null, null);
+    }
+
+    public boolean hasWorkingHours() {
+        return workStart != null;
+    }
+}
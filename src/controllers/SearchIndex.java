@@ -0,0 +1,195 @@
+package controllers;
+
+import models.Task;
+
+import java.util.*;
+
+// Обратный индекс по словам имени и описания: слово -> id задач по возрастанию.
+// Запрос - слова, которые все должны встретиться в задаче (AND); слово со звёздочкой на конце ("отч*") - префикс.
+// Ведущим берётся самый короткий список точных слов, остальные проверяются двоичным поиском, префиксы -
+// по отсортированным словам самой задачи. Проход идёт по возрастанию id и останавливается на limit.
+class SearchIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private record QueryTerm(String text, boolean prefix) {
+    }
+
+    private static class Postings {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            // id выдаются по возрастанию, поэтому обычно это запись в конец
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) return;
+                insert(-pos - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return false;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insert(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    // слова каждой задачи, отсортированы: нужны для снятия старых слов и проверки префиксов
+    private final Map<Integer, String[]> termsById = new HashMap<>();
+
+    synchronized void put(Task task) {
+        int id = task.getId();
+        String[] terms = terms(task);
+        String[] old = termsById.put(id, terms);
+        if (old != null) {
+            if (Arrays.equals(old, terms)) return;
+            for (String term : old) {
+                removePosting(term, id);
+            }
+        }
+        for (String term : terms) {
+            postings.computeIfAbsent(term, k -> new Postings()).add(id);
+        }
+    }
+
+    synchronized void remove(int id) {
+        String[] old = termsById.remove(id);
+        if (old == null) return;
+        for (String term : old) {
+            removePosting(term, id);
+        }
+    }
+
+    synchronized void clear() {
+        postings.clear();
+        termsById.clear();
+    }
+
+    synchronized int[] search(String query, int limit) {
+        List<QueryTerm> terms = new ArrayList<>();
+        tokenize(query, terms);
+        if (terms.isEmpty() || limit <= 0) return EMPTY;
+
+        List<Postings> exact = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (QueryTerm term : terms) {
+            if (term.prefix()) {
+                prefixes.add(term.text());
+            } else {
+                Postings found = postings.get(term.text());
+                if (found == null) return EMPTY;
+                exact.add(found);
+            }
+        }
+
+        int[] result = new int[Math.min(limit, 64)];
+        int count = 0;
+        if (!exact.isEmpty()) {
+            exact.sort(Comparator.comparingInt(p -> p.size));
+            Postings lead = exact.get(0);
+            for (int i = 0; i < lead.size && count < limit; i++) {
+                int id = lead.ids[i];
+                if (containsAll(exact, id) && matchesPrefixes(id, prefixes, null)) {
+                    if (count == result.length) result = Arrays.copyOf(result, Math.min(limit, count * 2));
+                    result[count++] = id;
+                }
+            }
+        } else {
+            // только префиксы: слияние списков всех слов самого длинного префикса в порядке id
+            String lead = Collections.max(prefixes, Comparator.comparingInt(String::length));
+            PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparingInt(h -> h[0]));
+            List<Postings> lists = new ArrayList<>(postings.subMap(lead, lead + Character.MAX_VALUE).values());
+            for (int i = 0; i < lists.size(); i++) {
+                heads.add(new int[]{lists.get(i).ids[0], i, 0}); // {id, номер списка, позиция}
+            }
+            int previous = Integer.MIN_VALUE;
+            while (!heads.isEmpty() && count < limit) {
+                int[] head = heads.poll();
+                int id = head[0];
+                Postings list = lists.get(head[1]);
+                if (++head[2] < list.size) {
+                    head[0] = list.ids[head[2]];
+                    heads.add(head);
+                }
+                if (id == previous) continue; // задача с несколькими словами на этот префикс
+                previous = id;
+                if (matchesPrefixes(id, prefixes, lead)) {
+                    if (count == result.length) result = Arrays.copyOf(result, Math.min(limit, count * 2));
+                    result[count++] = id;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static boolean containsAll(List<Postings> lists, int id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) return false;
+        }
+        return true;
+    }
+
+    private boolean matchesPrefixes(int id, List<String> prefixes, String skip) {
+        if (prefixes.isEmpty()) return true;
+        String[] terms = termsById.get(id);
+        for (String prefix : prefixes) {
+            if (prefix.equals(skip)) continue;
+            int pos = Arrays.binarySearch(terms, prefix);
+            if (pos < 0) pos = -pos - 1;
+            if (pos == terms.length || !terms[pos].startsWith(prefix)) return false;
+        }
+        return true;
+    }
+
+    private void removePosting(String term, int id) {
+        Postings list = postings.get(term);
+        if (list != null && list.remove(id) && list.size == 0) {
+            postings.remove(term);
+        }
+    }
+
+    private static String[] terms(Task task) {
+        List<QueryTerm> tokens = new ArrayList<>();
+        tokenize(task.getName(), tokens);
+        tokenize(task.getDescription(), tokens);
+        TreeSet<String> unique = new TreeSet<>();
+        for (QueryTerm token : tokens) {
+            unique.add(token.text());
+        }
+        return unique.toArray(new String[0]);
+    }
+
+    // Слова - последовательности букв и цифр в нижнем регистре; '*' сразу после слова делает его префиксом
+    private static void tokenize(String text, List<QueryTerm> out) {
+        if (text == null) return;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                boolean prefix = i < text.length() && text.charAt(i) == '*';
+                out.add(new QueryTerm(text.substring(start, i).toLowerCase(Locale.ROOT), prefix));
+                start = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package controllers;
+
+import models.Task;
+import models.TaskStatus;
+
+import java.util.EnumMap;
+import java.util.NavigableMap;
+import java.util.function.Supplier;
+
+// Вторичный индекс по статусу: для каждого статуса - задачи с ним, упорядоченные по id,
+// чтобы выборка с фильтром и постраничная выдача не проходили по всей коллекции.
+// Прежний статус не запоминается: задачу могли поменять на месте, поэтому put убирает id из остальных корзин.
+// Изменения идут под монитором индекса (подзадачи разных эпиков ConcurrentTaskManager меняет параллельно),
+// чтение - без него, если корзины потокобезопасны.
+class StatusIndex<T extends Task> {
+    private final EnumMap<TaskStatus, NavigableMap<Integer, T>> byStatus = new EnumMap<>(TaskStatus.class);
+
+    StatusIndex(Supplier<NavigableMap<Integer, T>> buckets) {
+        for (TaskStatus status : TaskStatus.values()) {
+            byStatus.put(status, buckets.get());
+        }
+    }
+
+    synchronized void put(T task) {
+        for (TaskStatus status : TaskStatus.values()) {
+            if (status == task.getStatus()) {
+                byStatus.get(status).put(task.getId(), task);
+            } else {
+                byStatus.get(status).remove(task.getId());
+            }
+        }
+    }
+
+    synchronized void remove(int id) {
+        for (NavigableMap<Integer, T> bucket : byStatus.values()) {
+            bucket.remove(id);
+        }
+    }
+
+    synchronized void clear() {
+        for (NavigableMap<Integer, T> bucket : byStatus.values()) {
+            bucket.clear();
+        }
+    }
+
+    NavigableMap<Integer, T> get(TaskStatus status) {
+        return byStatus.get(status);
+    }
+}
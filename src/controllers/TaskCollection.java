@@ -0,0 +1,10 @@
+package controllers;
+
+// Коллекции, для которых менеджер ведёт номер версии: номер растёт при каждом изменении содержимого
+public enum TaskCollection {
+    TASKS,
+    EPICS,
+    SUBTASKS,
+    PRIORITIZED,
+    HISTORY
+}
@@ -3,15 +3,19 @@ package controllers;
 import models.Task;
 import models.Epic;
 import models.Subtask;
+import models.TaskStatus;
 import java.util.List;
 
 public interface TaskManager {
 
-    void createTask(Task task);
+    // true - задача сохранена, false - пересекается по времени с другой (как у createAll).
+    // Проверка и сохранение идут одним шагом, отдельная проверка перед вызовом могла бы устареть
+    boolean createTask(Task task);
 
     void createEpic(Epic epic);
 
-    void createSubtask(Subtask subtask);
+    // NotFoundException, если эпика нет
+    boolean createSubtask(Subtask subtask);
 
     Task getTask(int id);
 
@@ -25,13 +29,50 @@ public interface TaskManager {
 
     List<Subtask> getAllSubtasks(); // Метод для получения всех подзадач
 
+    // Страница по возрастанию id: не больше limit элементов с id > afterId, status == null - без фильтра
+    List<Task> listTasks(int afterId, int limit, TaskStatus status);
+
+    List<Epic> listEpics(int afterId, int limit, TaskStatus status);
+
+    List<Subtask> listSubtasks(int afterId, int limit, TaskStatus status);
+
+    // Подзадачи эпика в порядке добавления; NotFoundException, если эпика нет
+    List<Subtask> getEpicSubtasks(int epicId);
+
+    // Задачи всех типов, в имени или описании которых есть все слова запроса ("слово*" - по префиксу),
+    // по возрастанию id, не больше limit
+    List<Task> search(String query, int limit);
+
     List<Task> getHistory(); // Метод для получения истории
 
-    void updateTask(Task task);
+    // Номер версии коллекции, растёт при каждом её изменении; -1 - менеджер версии не ведёт
+    default long getVersion(TaskCollection collection) {
+        return -1;
+    }
+
+    // Просмотр и история в рамках сессии клиента; session == null - общая история, как у методов без сессии
+    default Task getTask(int id, String session) {
+        return getTask(id);
+    }
+
+    default Epic getEpic(int id, String session) {
+        return getEpic(id);
+    }
+
+    default Subtask getSubtask(int id, String session) {
+        return getSubtask(id);
+    }
+
+    default List<Task> getHistory(String session) {
+        return getHistory();
+    }
+
+    // true - изменение сохранено, false - пересечение по времени; NotFoundException, если задачи (эпика) нет
+    boolean updateTask(Task task);
 
     void updateEpic(Epic epic);
 
-    void updateSubtask(Subtask subtask);
+    boolean updateSubtask(Subtask subtask);
 
     void deleteTaskById(int id);
 
@@ -44,4 +85,11 @@ public interface TaskManager {
     void clearEpics();
 
     void clearSubtasks();
+
+    // Пакетное создание задач, эпиков и подзадач: создаются все или ни одна, сохранение - одно на пакет.
+    // false - задачи пакета пересекаются по времени между собой или с уже существующими
+    boolean createAll(List<? extends Task> batch);
+
+    // Удаление задач любого типа по id одним изменением; неизвестные id пропускаются
+    void deleteByIds(int[] ids);
 }
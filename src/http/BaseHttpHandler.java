@@ -1,19 +1,85 @@
 package http;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
+import controllers.ConcurrentTaskManager;
+import controllers.TaskCollection;
 import controllers.TaskManager;
+import models.Task;
+import models.TaskStatus;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class BaseHttpHandler implements com.sun.net.httpserver.HttpHandler {
+    // клиент, передавший этот заголовок, получает в /history только свои просмотры
+    public static final String SESSION_HEADER = "X-History-Session";
+    // ответы от этого размера сжимаются, если клиент прислал Accept-Encoding: gzip
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
     protected final TaskManager manager;
     protected final Gson gson;
+    // менеджер без собственной синхронизации: каждое обращение к нему идёт под его монитором
+    private final boolean serialized;
+    // сериализованные полные списки коллекций по версии менеджера
+    private final Map<TaskCollection, CachedJson> jsonCache = new ConcurrentHashMap<>();
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    private static class CachedJson {
+        final long version;
+        final byte[] body;
+        private volatile byte[] gzipped; // сжатая копия, строится при первом запросе с gzip
+
+        CachedJson(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+
+        byte[] gzipped() {
+            byte[] result = gzipped;
+            if (result == null) {
+                result = gzip(body);
+                gzipped = result;
+            }
+            return result;
+        }
+    }
 
     public BaseHttpHandler(TaskManager manager, Gson gson) {
         this.manager = manager;
         this.gson = gson;
+        this.serialized = !(manager instanceof ConcurrentTaskManager);
+    }
+
+    // Под монитором менеджера выполняется только сам вызов: чтение тела запроса, сериализация
+    // и отправка ответа идут без блокировки, и медленный клиент не задерживает остальные запросы
+    protected <T> T call(Supplier<T> action) {
+        if (!serialized) return action.get();
+        synchronized (manager) {
+            return action.get();
+        }
+    }
+
+    protected void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
     }
 
     protected String readBody(HttpExchange exchange) throws IOException {
@@ -21,13 +87,226 @@ public abstract class BaseHttpHandler implements com.sun.net.httpserver.HttpHand
         return new String(is.readAllBytes(), StandardCharsets.UTF_8);
     }
 
+    // Порог в байтах, с которого ответ сжимается; отрицательное значение - не сжимать никогда
+    public void setCompressionThreshold(int bytes) {
+        this.compressionThreshold = bytes;
+    }
+
     protected void sendText(HttpExchange exchange, String response, int code) throws IOException {
         byte[] resp = response.getBytes(StandardCharsets.UTF_8);
+        if (shouldCompress(exchange, resp.length)) {
+            sendGzipped(exchange, gzip(resp), code);
+            return;
+        }
         exchange.sendResponseHeaders(code, resp.length);
         exchange.getResponseBody().write(resp);
         exchange.close();
     }
 
+    // JSON пишется прямо в тело ответа без промежуточной строки; длинный ответ - chunked и при возможности сжатым
+    protected void sendJson(HttpExchange exchange, Object value, int code) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        int threshold = acceptsGzip(exchange) ? compressionThreshold : -1;
+        if (compressionThreshold >= 0) {
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        }
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new ResponseBodyStream(exchange, code, threshold), StandardCharsets.UTF_8)))) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                gson.toJson(value, value.getClass(), writer);
+            }
+        }
+        exchange.close();
+    }
+
+    // ETag строится из версий коллекций, от которых зависит ответ, и варианта запроса (параметры, сессия).
+    // true - у клиента уже эта версия, отправлен 304 без тела
+    protected boolean notModified(HttpExchange exchange, String variant, TaskCollection... collections)
+            throws IOException {
+        StringBuilder tag = new StringBuilder("\"");
+        for (TaskCollection collection : collections) {
+            long version = manager.getVersion(collection);
+            if (version < 0) return false;
+            tag.append(collection.name().toLowerCase()).append('-').append(version).append('.');
+        }
+        if (variant != null && !variant.isEmpty()) {
+            tag.append(digest(variant));
+        } else {
+            tag.setLength(tag.length() - 1);
+        }
+        String etag = tag.append('"').toString();
+        exchange.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !matchesETag(ifNoneMatch, etag)) {
+            return false;
+        }
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    // SHA-256 варианта: у разных запросов (сессий) теги не должны совпадать, как бывает с hashCode
+    private static String digest(String variant) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(variant.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 есть в любой JVM
+        }
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Полный список коллекции: пока её версия не изменилась, отдаются уже готовые байты без Gson
+    protected void sendCollection(HttpExchange exchange, TaskCollection collection, Supplier<?> list)
+            throws IOException {
+        long version = manager.getVersion(collection);
+        if (version < 0) {
+            sendJson(exchange, call(list), 200);
+            return;
+        }
+        CachedJson cached = jsonCache.get(collection);
+        if (cached == null || cached.version != version) {
+            // версия прочитана до списка: если он успел измениться, кэш просто перестроится в следующий раз
+            cached = new CachedJson(version, toJsonBytes(call(list)));
+            jsonCache.put(collection, cached);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (shouldCompress(exchange, cached.body.length)) {
+            sendGzipped(exchange, cached.gzipped(), 200);
+            return;
+        }
+        exchange.sendResponseHeaders(200, cached.body.length);
+        exchange.getResponseBody().write(cached.body);
+        exchange.close();
+    }
+
+    // JSON сразу в UTF-8 байты, без промежуточной строки
+    private byte[] toJsonBytes(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                gson.toJson(value, value.getClass(), writer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // запись в память не падает
+        }
+        return bytes.toByteArray();
+    }
+
+    private boolean shouldCompress(HttpExchange exchange, int length) {
+        int threshold = compressionThreshold;
+        if (threshold < 0) return false;
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        return length >= threshold && length > 0 && acceptsGzip(exchange);
+    }
+
+    private void sendGzipped(HttpExchange exchange, byte[] body, int code) throws IOException {
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    // gzip разрешён, если его вес в Accept-Encoding больше нуля. Явная запись gzip важнее *, поэтому
+    // "*, gzip;q=0" - отказ; заголовков Accept-Encoding может быть несколько
+    protected static boolean acceptsGzip(HttpExchange exchange) {
+        List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+        if (headers == null) return false;
+        double gzip = -1;
+        double any = -1;
+        for (String header : headers) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                    gzip = Math.max(gzip, qValue(parts));
+                } else if (name.equals("*")) {
+                    any = Math.max(any, qValue(parts));
+                }
+            }
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+
+    // вес кодировки: без q - 1, непонятный q - 0 (лучше отправить несжатым, чем то, что клиент не ждёт)
+    private static double qValue(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] param = parts[i].split("=", 2);
+            if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    double q = Double.parseDouble(param[1].trim());
+                    return q >= 0 && q <= 1 ? q : 0;
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // запись в память не падает
+        }
+        return buffer.toByteArray();
+    }
+
+    protected boolean isBatch(HttpExchange exchange) {
+        return exchange.getRequestURI().getPath().endsWith("/batch");
+    }
+
+    // POST .../batch - массив задач создаётся целиком или не создаётся вовсе, в ответе id созданных;
+    // DELETE .../batch?ids=1,2,3 - удаление нескольких задач одним изменением
+    protected void handleBatch(HttpExchange exchange, Class<? extends Task[]> type) throws IOException {
+        String method = exchange.getRequestMethod();
+        if ("POST".equals(method)) {
+            Task[] batch = gson.fromJson(readBody(exchange), type);
+            if (batch == null) {
+                sendBadRequest(exchange, "Bad Request");
+                return;
+            }
+            if (!call(() -> manager.createAll(Arrays.asList(batch)))) {
+                sendHasIntersections(exchange);
+                return;
+            }
+            int[] ids = new int[batch.length];
+            for (int i = 0; i < batch.length; i++) {
+                ids[i] = batch[i].getId();
+            }
+            sendJson(exchange, ids, 201);
+        } else if ("DELETE".equals(method)) {
+            String ids = getQueryParam(exchange.getRequestURI().getQuery(), "ids");
+            if (ids == null) {
+                sendBadRequest(exchange, "Bad Request");
+                return;
+            }
+            int[] parsed = Arrays.stream(ids.split(",")).mapToInt(Integer::parseInt).toArray();
+            run(() -> manager.deleteByIds(parsed));
+            sendText(exchange, "Deleted", 200);
+        } else {
+            sendText(exchange, "Method Not Allowed", 405);
+        }
+    }
+
     protected void sendNotFound(HttpExchange exchange, String message) throws IOException {
         sendText(exchange, message, 404);
     }
@@ -36,6 +315,10 @@ public abstract class BaseHttpHandler implements com.sun.net.httpserver.HttpHand
         sendText(exchange, "Task time overlaps with existing task", 406);
     }
 
+    protected void sendBadRequest(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, message, 400);
+    }
+
     protected void sendServerError(HttpExchange exchange, String message) throws IOException {
         sendText(exchange, message, 500);
     }
@@ -48,4 +331,32 @@ public abstract class BaseHttpHandler implements com.sun.net.httpserver.HttpHand
         }
         return 0;
     }
+
+    protected String getQueryParam(String query, String name) {
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            String[] kv = pair.split("=", 2);
+            if (name.equals(kv[0]) && kv.length > 1) return kv[1];
+        }
+        return null;
+    }
+
+    protected String getSession(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+    }
+
+    // Параметры limit, after и status; null - запрос без пагинации
+    protected Page getPage(String query) {
+        String limit = getQueryParam(query, "limit");
+        String after = getQueryParam(query, "after");
+        String status = getQueryParam(query, "status");
+        if (limit == null && after == null && status == null) return null;
+        return new Page(
+                after == null ? 0 : Integer.parseInt(after),
+                limit == null ? Integer.MAX_VALUE : Integer.parseInt(limit),
+                status == null ? null : TaskStatus.valueOf(status));
+    }
+
+    protected record Page(int afterId, int limit, TaskStatus status) {
+    }
 }
@@ -8,6 +8,15 @@ import java.time.format.DateTimeFormatter;
 
 public class GsonFactory {
     public static Gson build() {
+        return builder().setPrettyPrinting().create();
+    }
+
+    // Без отступов и переводов строк - для ответов HTTP API
+    public static Gson buildCompact() {
+        return builder().create();
+    }
+
+    private static GsonBuilder builder() {
         GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(Duration.class, new JsonSerializer<Duration>() {
             public JsonElement serialize(Duration src, Type typeOfSrc, JsonSerializationContext context) {
@@ -29,7 +38,6 @@ public class GsonFactory {
                 return LocalDateTime.parse(json.getAsString(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
             }
         });
-        builder.setPrettyPrinting();
-        return builder.create();
+        return builder;
     }
 }
@@ -0,0 +1,79 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Тело ответа, размер которого заранее неизвестен. Начало копится в буфере: короткий ответ уходит целиком
+// с Content-Length, а как только набралось gzipThreshold байт (или PLAIN_BUFFER без сжатия),
+// заголовки отправляются и дальше тело пишется потоком - сжатым, если клиент это разрешил.
+class ResponseBodyStream extends OutputStream {
+    private static final int PLAIN_BUFFER = 8 * 1024;
+
+    private final HttpExchange exchange;
+    private final int code;
+    private final int gzipThreshold; // -1 - не сжимать
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private OutputStream out;
+
+    ResponseBodyStream(HttpExchange exchange, int code, int gzipThreshold) {
+        this.exchange = exchange;
+        this.code = code;
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out != null) {
+            out.write(b, off, len);
+            return;
+        }
+        pending.write(b, off, len);
+        int limit = gzipThreshold >= 0 ? gzipThreshold : PLAIN_BUFFER;
+        if (pending.size() >= limit) {
+            startStreaming();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // до решения о сжатии сбрасывать нечего: заголовки ещё не отправлены
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            byte[] body = pending.toByteArray();
+            exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+            try (OutputStream raw = exchange.getResponseBody()) {
+                raw.write(body);
+            }
+        } else {
+            out.close();
+        }
+    }
+
+    private void startStreaming() throws IOException {
+        if (gzipThreshold >= 0) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(code, 0);
+            out = new GZIPOutputStream(exchange.getResponseBody(), PLAIN_BUFFER);
+        } else {
+            exchange.sendResponseHeaders(code, 0);
+            out = exchange.getResponseBody();
+        }
+        pending.writeTo(out);
+        pending.reset();
+    }
+}
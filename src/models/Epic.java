@@ -2,61 +2,122 @@ package models;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Epic extends Task {
-    private final List<Subtask> subtasks = new ArrayList<>();
+    private final SubtaskSet subtasks = new SubtaskSet();
     private LocalDateTime endTime;
 
+    // Агрегаты по подзадачам поддерживаются при добавлении/удалении, а не пересчитываются целиком.
+    // Вклад запоминается на момент добавления: подзадачу могут изменить на месте до её замены
+    private final transient Map<Integer, Contribution> contributions = new HashMap<>();
+    private final transient int[] statusCounts = new int[TaskStatus.values().length];
+    private transient Duration totalDuration = Duration.ZERO;
+    private final transient TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final transient TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+
+    private record Contribution(TaskStatus status, Duration duration, LocalDateTime start, LocalDateTime end) {
+    }
+
     public Epic(int id, String name, String description) {
         super(id, name, description, TaskStatus.NEW, Duration.ZERO, null);
     }
 
-    public List<Subtask> getSubtasks() {
-        return subtasks;
+    // для Gson: без конструктора поля-агрегаты остались бы null
+    private Epic() {
+        this(0, null, null);
+    }
+
+    // Только для чтения; меняется через addSubtask/removeSubtask
+    public Collection<Subtask> getSubtasks() {
+        return Collections.unmodifiableCollection(subtasks);
     }
 
     public void addSubtask(Subtask subtask) {
+        Contribution previous = contributions.remove(subtask.getId());
+        if (previous != null) {
+            subtract(previous);
+        }
         subtasks.add(subtask);
-        updateStatusAndTime();
+        include(subtask);
+        refresh();
     }
 
     public void removeSubtask(Subtask subtask) {
-        subtasks.remove(subtask);
-        updateStatusAndTime();
+        Contribution previous = contributions.remove(subtask.getId());
+        if (previous != null) {
+            subtasks.remove(subtask);
+            subtract(previous);
+            refresh();
+        }
     }
 
+    public void clearSubtasks() {
+        subtasks.clear();
+        resetAggregates();
+        refresh();
+    }
+
+    // Полный пересчёт - если подзадачи менялись на месте в обход addSubtask/removeSubtask
     public void updateStatusAndTime() {
-        if (subtasks.isEmpty()) {
+        resetAggregates();
+        for (Subtask st : subtasks) {
+            include(st);
+        }
+        refresh();
+    }
+
+    private void include(Subtask st) {
+        Contribution c = new Contribution(st.getStatus(), st.getDuration(), st.getStartTime(), st.getEndTime());
+        contributions.put(st.getId(), c);
+        if (c.status() != null) statusCounts[c.status().ordinal()]++;
+        if (c.duration() != null) totalDuration = totalDuration.plus(c.duration());
+        if (c.start() != null) {
+            starts.merge(c.start(), 1, Integer::sum);
+            if (c.end() != null) ends.merge(c.end(), 1, Integer::sum);
+        }
+    }
+
+    private void subtract(Contribution c) {
+        if (c.status() != null) statusCounts[c.status().ordinal()]--;
+        if (c.duration() != null) totalDuration = totalDuration.minus(c.duration());
+        if (c.start() != null) {
+            decrement(starts, c.start());
+            if (c.end() != null) decrement(ends, c.end());
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+        counts.computeIfPresent(key, (k, v) -> v == 1 ? null : v - 1);
+    }
+
+    private void resetAggregates() {
+        contributions.clear();
+        Arrays.fill(statusCounts, 0);
+        totalDuration = Duration.ZERO;
+        starts.clear();
+        ends.clear();
+    }
+
+    private void refresh() {
+        int size = contributions.size();
+        if (size == 0 || statusCounts[TaskStatus.NEW.ordinal()] == size) {
             this.status = TaskStatus.NEW;
+        } else if (statusCounts[TaskStatus.DONE.ordinal()] == size) {
+            this.status = TaskStatus.DONE;
         } else {
-            boolean allNew = true;
-            boolean allDone = true;
-            for (Subtask st : subtasks) {
-                if (st.getStatus() != TaskStatus.NEW) allNew = false;
-                if (st.getStatus() != TaskStatus.DONE) allDone = false;
-            }
-            if (allNew) this.status = TaskStatus.NEW;
-            else if (allDone) this.status = TaskStatus.DONE;
-            else this.status = TaskStatus.IN_PROGRESS;
+            this.status = TaskStatus.IN_PROGRESS;
         }
 
         // --- Время и длительность
-        Duration total = Duration.ZERO;
-        LocalDateTime minStart = null;
-        LocalDateTime maxEnd = null;
-        for (Subtask st : subtasks) {
-            if (st.getDuration() != null) total = total.plus(st.getDuration());
-            if (st.getStartTime() != null) {
-                if (minStart == null || st.getStartTime().isBefore(minStart)) minStart = st.getStartTime();
-                LocalDateTime stEnd = st.getEndTime();
-                if (stEnd != null && (maxEnd == null || stEnd.isAfter(maxEnd))) maxEnd = stEnd;
-            }
-        }
-        this.duration = total;
-        this.startTime = minStart;
-        this.endTime = maxEnd;
+        this.duration = totalDuration;
+        this.startTime = starts.isEmpty() ? null : starts.firstKey();
+        this.endTime = ends.isEmpty() ? null : ends.lastKey();
     }
 
     @Override
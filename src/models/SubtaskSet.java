@@ -0,0 +1,52 @@
+package models;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Подзадачи эпика в порядке id (он же порядок создания) с доступом по id за O(log n).
+// Коллекция, а не Map, чтобы в JSON эпик по-прежнему отдавал подзадачи массивом.
+// Меняется только под блокировкой эпика, но читается без неё (история, сериализация /epics),
+// поэтому карта конкурентная: обход не бросает ConcurrentModificationException
+class SubtaskSet extends AbstractCollection<Subtask> {
+    private final ConcurrentNavigableMap<Integer, Subtask> byId = new ConcurrentSkipListMap<>();
+    // size() у ConcurrentSkipListMap проходит всю карту; писатели одного эпика идут по очереди
+    private volatile int size;
+
+    @Override
+    public boolean add(Subtask subtask) {
+        // повторное добавление заменяет объект, не меняя его места
+        if (byId.put(subtask.getId(), subtask) != null) return false;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Subtask subtask) || byId.remove(subtask.getId()) == null) return false;
+        size--;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Subtask subtask && byId.containsKey(subtask.getId());
+    }
+
+    @Override
+    public void clear() {
+        byId.clear();
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Subtask> iterator() {
+        return byId.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,164 @@
+package controllers;
+
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutoSchedulerTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2024, 6, 17, 0, 0);
+
+    private InMemoryTaskManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+    }
+
+    private Task unscheduled(String name, int minutes) {
+        Task task = new Task(0, name, "d", TaskStatus.NEW, Duration.ofMinutes(minutes), null);
+        manager.createTask(task);
+        return task;
+    }
+
+    private static int[] ids(Task... tasks) {
+        int[] ids = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            ids[i] = tasks[i].getId();
+        }
+        return ids;
+    }
+
+    private void busy(LocalDateTime start, int minutes) {
+        manager.createTask(new Task(0, "busy", "d", TaskStatus.NEW, Duration.ofMinutes(minutes), start));
+    }
+
+    @Test
+    public void shouldFillEarliestGapThatFits() {
+        LocalDateTime nine = MONDAY.plusHours(9);
+        busy(nine, 60);
+        busy(nine.plusMinutes(90), 60);
+        Task long1 = unscheduled("long", 45);
+        Task short1 = unscheduled("short", 20);
+
+        List<Task> placed = manager.autoSchedule(ids(long1, short1), SchedulingOptions.from(nine));
+
+        assertEquals(List.of(long1, short1), placed);
+        // 45 минут не помещаются в зазор 10:01-10:29, 20 минут - помещаются
+        assertEquals(nine.plusMinutes(151), long1.getStartTime());
+        assertEquals(nine.plusMinutes(61), short1.getStartTime());
+        assertEquals(4, manager.getPrioritizedTasks().size());
+        for (Task task : manager.getPrioritizedTasks()) {
+            assertTrue(manager.findConflicts(task).isEmpty());
+        }
+        assertTrue(manager.autoSchedule(ids(long1, short1), SchedulingOptions.from(nine)).isEmpty());
+    }
+
+    @Test
+    public void shouldLeaveTasksThatMissDeadline() {
+        Task fits = unscheduled("fits", 30);
+        Task tooLong = unscheduled("too long", 120);
+        Task untimed = new Task(0, "no duration", "d", TaskStatus.NEW, null, null);
+        manager.createTask(untimed);
+
+        List<Task> placed = manager.autoSchedule(ids(fits, tooLong, untimed),
+                new SchedulingOptions(MONDAY, MONDAY.plusHours(1), null, null));
+
+        assertEquals(List.of(fits), placed);
+        assertEquals(MONDAY, fits.getStartTime());
+        assertNull(tooLong.getStartTime());
+        assertNull(untimed.getStartTime());
+    }
+
+    @Test
+    public void shouldKeepInsideWorkingHours() {
+        SchedulingOptions options = new SchedulingOptions(MONDAY.plusHours(16), null,
+                LocalTime.of(9, 0), LocalTime.of(18, 0));
+        Task first = unscheduled("first", 90);
+        Task second = unscheduled("second", 90);
+        Task huge = unscheduled("longer than a day", 10 * 60);
+
+        List<Task> placed = manager.autoSchedule(ids(first, second, huge), options);
+
+        assertEquals(List.of(first, second), placed);
+        assertEquals(MONDAY.plusHours(16), first.getStartTime());
+        // в понедельник после 17:31 осталось меньше 90 минут - переносится на утро вторника
+        assertEquals(MONDAY.plusDays(1).plusHours(9), second.getStartTime());
+        assertNull(huge.getStartTime());
+    }
+
+    @Test
+    public void shouldScheduleSubtasksAndUpdateEpic() {
+        Epic epic = new Epic(0, "e", "d");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask(0, "s", "d", TaskStatus.NEW, Duration.ofMinutes(30), null, epic.getId());
+        manager.createSubtask(subtask);
+
+        manager.autoSchedule(ids(subtask), SchedulingOptions.from(MONDAY));
+
+        assertEquals(MONDAY, subtask.getStartTime());
+        assertEquals(MONDAY, manager.getEpic(epic.getId()).getStartTime());
+    }
+
+    @Test
+    public void shouldMatchPlacingOneByOneWithNextFreeSlot() {
+        Random random = new Random(7);
+        InMemoryTaskManager reference = new InMemoryTaskManager();
+        for (int i = 0; i < 300; i++) {
+            LocalDateTime start = MONDAY.plusMinutes(random.nextInt(20_000));
+            Duration duration = Duration.ofMinutes(5 + random.nextInt(60));
+            manager.createTask(new Task(0, "busy", "d", TaskStatus.NEW, duration, start));
+            reference.createTask(new Task(0, "busy", "d", TaskStatus.NEW, duration, start));
+        }
+        List<Duration> durations = new ArrayList<>();
+        Task[] pending = new Task[500];
+        for (int i = 0; i < pending.length; i++) {
+            durations.add(Duration.ofMinutes(1 + random.nextInt(90)));
+            pending[i] = unscheduled("new", (int) durations.get(i).toMinutes());
+        }
+
+        List<Task> placed = manager.autoSchedule(ids(pending), SchedulingOptions.from(MONDAY));
+
+        assertEquals(durations.size(), placed.size());
+        for (int i = 0; i < durations.size(); i++) {
+            LocalDateTime expected = reference.nextFreeSlot(durations.get(i), MONDAY);
+            reference.createTask(new Task(0, "new", "d", TaskStatus.NEW, durations.get(i), expected));
+            assertEquals(expected, placed.get(i).getStartTime(), "задача " + i);
+        }
+    }
+
+    @Test
+    public void shouldScheduleOnlyGivenTasks() {
+        Task chosen = unscheduled("chosen", 30);
+        Task other = unscheduled("other", 30);
+
+        assertThrows(exceptions.NotFoundException.class,
+                () -> manager.autoSchedule(new int[]{chosen.getId(), 999}, SchedulingOptions.from(MONDAY)));
+        assertNull(chosen.getStartTime());
+
+        assertEquals(List.of(chosen), manager.autoSchedule(ids(chosen, chosen), SchedulingOptions.from(MONDAY)));
+        assertEquals(MONDAY, chosen.getStartTime());
+        assertNull(other.getStartTime());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    public void optionsShouldBeValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new SchedulingOptions(null, null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SchedulingOptions(MONDAY, MONDAY.minusDays(1), null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SchedulingOptions(MONDAY, null, LocalTime.of(9, 0), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SchedulingOptions(MONDAY, null, LocalTime.of(18, 0), LocalTime.of(9, 0)));
+    }
+}
@@ -0,0 +1,136 @@
+package controllers;
+
+import models.Task;
+import models.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentHistoryManagerTest {
+
+    private static Task task(int id) {
+        return new Task(id, "T" + id, "D", TaskStatus.NEW, null, null);
+    }
+
+    @Test
+    public void shouldBehaveLikeHistoryInOneThread() {
+        HistoryManager history = new ConcurrentHistoryManager(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        history.add(task(1));
+        history.add(null);
+        history.remove(3);
+
+        assertEquals(List.of(task(2), task(1)), history.getHistory());
+    }
+
+    @Test
+    public void tombstonesShouldNotTakeHistorySlots() {
+        HistoryManager history = new ConcurrentHistoryManager(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        for (int id = 100; id < 200; id++) {
+            history.remove(id);
+        }
+        history.remove(2);
+        history.add(task(4));
+
+        assertEquals(List.of(task(1), task(3), task(4)), history.getHistory());
+    }
+
+    @Test
+    public void shouldKeepPerThreadOrderAndUniqueness() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        HistoryManager history = new ConcurrentHistoryManager(threads * perThread);
+        runConcurrently(threads, t -> {
+            int base = t * perThread;
+            for (int i = 0; i < perThread; i++) {
+                history.add(task(base + i));
+            }
+            // повторный просмотр в обратном порядке - в истории должен остаться именно он
+            for (int i = perThread - 1; i >= 0; i--) {
+                history.add(task(base + i));
+            }
+        });
+
+        List<Task> result = history.getHistory();
+        assertEquals(threads * perThread, result.size());
+        assertEquals(result.size(), new HashSet<>(result).size());
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            List<Integer> ownIds = new ArrayList<>();
+            for (Task task : result) {
+                if (task.getId() >= base && task.getId() < base + perThread) {
+                    ownIds.add(task.getId());
+                }
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int i = perThread - 1; i >= 0; i--) {
+                expected.add(base + i);
+            }
+            assertEquals(expected, ownIds);
+        }
+    }
+
+    @Test
+    public void shouldStayUniqueAndBoundedUnderContention() throws Exception {
+        int capacity = 100;
+        int pool = 500;
+        HistoryManager history = new ConcurrentHistoryManager(capacity);
+        runConcurrently(8, t -> {
+            Random random = new Random(t);
+            for (int i = 0; i < 50_000; i++) {
+                int id = random.nextInt(pool);
+                if (random.nextInt(10) == 0) {
+                    history.remove(id);
+                } else {
+                    history.add(task(id));
+                }
+                if (i % 5_000 == 0) {
+                    List<Task> snapshot = history.getHistory();
+                    assertTrue(snapshot.size() <= capacity);
+                    assertEquals(snapshot.size(), new HashSet<>(snapshot).size());
+                }
+            }
+        });
+
+        // после гонки порядок определяется последними просмотрами
+        for (int id = 0; id < capacity; id++) {
+            history.add(task(id));
+        }
+        List<Task> expected = new ArrayList<>();
+        for (int id = 0; id < capacity; id++) {
+            expected.add(task(id));
+        }
+        assertEquals(expected, history.getHistory());
+    }
+
+    private interface Worker {
+        void run(int index) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,178 @@
+package controllers;
+
+import com.google.gson.Gson;
+import http.GsonFactory;
+import models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest {
+
+    private ConcurrentTaskManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        manager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsFromManyThreads() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        runConcurrently(threads, i -> {
+            for (int j = 0; j < perThread; j++) {
+                manager.createTask(new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+            }
+        });
+
+        Set<Integer> ids = new HashSet<>();
+        manager.getAllTasks().forEach(t -> ids.add(t.getId()));
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    public void shouldAcceptOnlyOneOfOverlappingTasks() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        runConcurrently(8, i -> manager.createTask(
+                new Task(0, "t" + i, "d", TaskStatus.NEW, Duration.ofMinutes(60), start.plusMinutes(i))));
+
+        assertEquals(1, manager.getAllTasks().size());
+        assertEquals(1, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    public void shouldKeepEpicStatusConsistentUnderConcurrentSubtaskUpdates() throws Exception {
+        int epicsCount = 4;
+        int perEpic = 200;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < epicsCount; i++) {
+            Epic epic = new Epic(0, "e" + i, "d");
+            manager.createEpic(epic);
+            epics.add(epic);
+        }
+
+        runConcurrently(epicsCount, i -> {
+            int epicId = epics.get(i).getId();
+            for (int j = 0; j < perEpic; j++) {
+                Subtask sub = new Subtask(0, "s", "d", TaskStatus.NEW, Duration.ofMinutes(5), null, epicId);
+                manager.createSubtask(sub);
+                manager.updateSubtask(new Subtask(sub.getId(), "s", "d", TaskStatus.DONE,
+                        Duration.ofMinutes(5), null, epicId));
+            }
+        });
+
+        assertEquals(epicsCount * perEpic, manager.getAllSubtasks().size());
+        for (Epic epic : epics) {
+            Epic stored = manager.getEpic(epic.getId());
+            assertEquals(perEpic, stored.getSubtasks().size());
+            assertEquals(TaskStatus.DONE, stored.getStatus());
+            assertEquals(Duration.ofMinutes(5L * perEpic), stored.getDuration());
+        }
+    }
+
+    @Test
+    public void shouldKeepPrioritizedInSyncWhenClearingDuringCreates() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        int perThread = 2000;
+        for (int round = 0; round < 5; round++) {
+            runConcurrently(4, i -> {
+                for (int j = 0; j < perThread; j++) {
+                    if (i == 0) {
+                        manager.clearTasks();
+                    } else {
+                        manager.createTask(new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(1),
+                                start.plusMinutes(10L * (i * perThread + j))));
+                    }
+                }
+            });
+
+            // задача, созданная посреди очистки, остаётся и в списке, и в расписании - или нигде
+            assertEquals(manager.getAllTasks().size(), manager.getPrioritizedTasks().size());
+            manager.clearTasks();
+            assertTrue(manager.getPrioritizedTasks().isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldReadEpicSubtasksWhileTheyChange() throws Exception {
+        Epic epic = new Epic(0, "e", "d");
+        manager.createEpic(epic);
+        Gson gson = GsonFactory.build();
+        int rounds = 3000;
+        runConcurrently(3, i -> {
+            for (int j = 0; j < rounds; j++) {
+                if (i == 0) {
+                    Subtask sub = new Subtask(0, "s", "d", TaskStatus.NEW, null, null, epic.getId());
+                    manager.createSubtask(sub);
+                    if (j % 2 == 0) manager.deleteSubtaskById(sub.getId());
+                } else if (i == 1) {
+                    gson.toJson(manager.getAllEpics());
+                } else {
+                    manager.getEpicSubtasks(epic.getId()).forEach(Subtask::getId);
+                }
+            }
+        });
+
+        assertEquals(rounds / 2, manager.getEpicSubtasks(epic.getId()).size());
+        assertEquals(rounds / 2, manager.getEpic(epic.getId()).getSubtasks().size());
+    }
+
+    @Test
+    public void shouldNotKeepDeletedTaskInHistoryWhenViewRacesWithDelete() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            Task task = new Task(0, "t", "d", TaskStatus.NEW, null, null);
+            manager.createTask(task);
+            int id = task.getId();
+            runConcurrently(2, i -> {
+                if (i == 1) {
+                    manager.deleteTaskById(id);
+                    return;
+                }
+                for (int j = 0; j < 50; j++) {
+                    try {
+                        manager.getTask(id);
+                    } catch (exceptions.NotFoundException e) {
+                        return;
+                    }
+                }
+            });
+
+            for (Task viewed : manager.getHistory()) {
+                assertNotEquals(id, viewed.getId());
+            }
+        }
+    }
+
+    private interface Worker {
+        void run(int index) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+}
@@ -6,7 +6,12 @@ import java.io.IOException;
 import java.nio.file.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -24,6 +29,16 @@ public class FileBackedTaskManagerTest {
     @AfterEach
     public void tearDown() throws IOException {
         Files.deleteIfExists(tempFile);
+        Files.deleteIfExists(journalOf(tempFile));
+        Files.deleteIfExists(historyLogOf(tempFile));
+    }
+
+    private static Path journalOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".journal");
+    }
+
+    private static Path historyLogOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".history");
     }
 
     @Test
@@ -52,4 +67,338 @@ public class FileBackedTaskManagerTest {
         assertFalse(history.isEmpty());
         assertEquals(t1.getId(), history.get(0).getId());
     }
+
+    @Test
+    public void shouldReplayJournalOnLoad() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, 100);
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        Task t1 = new Task(0, "t1", "d1", TaskStatus.NEW, Duration.ofMinutes(30), start);
+        Task t2 = new Task(0, "t2", "d2", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(1));
+        journaled.createTask(t1);
+        journaled.createTask(t2);
+        Epic epic = new Epic(0, "e", "d");
+        journaled.createEpic(epic);
+        Subtask sub = new Subtask(0, "s", "d", TaskStatus.DONE, Duration.ofMinutes(15), null, epic.getId());
+        journaled.createSubtask(sub);
+        journaled.deleteTaskById(t1.getId());
+        t2.setName("t2 renamed");
+        journaled.updateTask(t2);
+
+        assertTrue(Files.exists(journalOf(tempFile)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals("t2 renamed", loaded.getTask(t2.getId()).getName());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).getStatus());
+        assertEquals(1, loaded.getPrioritizedTasks().size());
+    }
+
+    @Test
+    public void shouldCompactJournalIntoSnapshot() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, 2);
+        for (int i = 0; i < 3; i++) {
+            journaled.createTask(new Task(0, "t" + i, "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+        }
+
+        assertFalse(Files.exists(journalOf(tempFile)));
+        assertEquals(3, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    public void getShouldNotRewriteDataFile() throws IOException {
+        Task t1 = new Task(0, "t1", "d1", TaskStatus.NEW, Duration.ofMinutes(5), null);
+        Task t2 = new Task(0, "t2", "d2", TaskStatus.NEW, Duration.ofMinutes(5), null);
+        manager.createTask(t1);
+        manager.createTask(t2);
+        byte[] before = Files.readAllBytes(tempFile);
+
+        manager.getTask(t2.getId());
+        manager.getTask(t1.getId());
+
+        assertArrayEquals(before, Files.readAllBytes(tempFile));
+        List<Task> history = FileBackedTaskManager.loadFromFile(tempFile).getHistory();
+        assertEquals(List.of(t2, t1), history);
+    }
+
+    @Test
+    public void shouldSaveAndLoadBinarySnapshot() throws IOException {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, 0, SnapshotFormat.BINARY);
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0, 30);
+        Task task = new Task(0, "name, with comma", "same", TaskStatus.IN_PROGRESS, Duration.ofMinutes(45), start);
+        binary.createTask(task);
+        Epic epic = new Epic(0, "epic", "same");
+        binary.createEpic(epic);
+        Subtask sub = new Subtask(0, "sub", null, TaskStatus.DONE, Duration.ofMinutes(15), null, epic.getId());
+        binary.createSubtask(sub);
+        binary.getSubtask(sub.getId());
+
+        assertEquals(BinarySnapshot.MAGIC, java.nio.ByteBuffer.wrap(Files.readAllBytes(tempFile)).getInt());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(sub), loaded.getHistory());
+        Task restored = loaded.getTask(task.getId());
+        assertEquals("name, with comma", restored.getName());
+        assertEquals(TaskStatus.IN_PROGRESS, restored.getStatus());
+        assertEquals(start, restored.getStartTime());
+        assertEquals(Duration.ofMinutes(45), restored.getDuration());
+        assertNull(loaded.getSubtask(sub.getId()).getDescription());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+    public void binaryManagerShouldReadCsvSnapshot() {
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(20), null);
+        manager.createTask(task);
+
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, 0, SnapshotFormat.BINARY);
+        assertEquals("t", binary.getTask(task.getId()).getName());
+    }
+
+    @Test
+    public void shouldLoadCsvWithEscapedCommasAndFractionalSeconds() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0, 30, 123_000_000);
+        Task task = new Task(0, "a, b \\ c", "x,y", TaskStatus.DONE, Duration.ofMinutes(45), start);
+        manager.createTask(task);
+        Epic epic = new Epic(0, "epic", "d");
+        manager.createEpic(epic);
+        Subtask sub = new Subtask(0, "s", "d", TaskStatus.IN_PROGRESS, null,
+                LocalDateTime.of(2024, 6, 22, 9, 15), epic.getId());
+        manager.createSubtask(sub);
+        manager.getTask(task.getId());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        Task restored = loaded.getTask(task.getId());
+        assertEquals("a, b \\ c", restored.getName());
+        assertEquals("x,y", restored.getDescription());
+        assertEquals(start, restored.getStartTime());
+        assertEquals(Duration.ofMinutes(45), restored.getDuration());
+        Subtask restoredSub = loaded.getSubtask(sub.getId());
+        assertEquals(epic.getId(), restoredSub.getEpicId());
+        assertNull(restoredSub.getDuration());
+        assertEquals(LocalDateTime.of(2024, 6, 22, 9, 15), restoredSub.getStartTime());
+    }
+
+    @Test
+    public void shouldLoadCsvWithWindowsLineEndings() throws IOException {
+        Files.writeString(tempFile, "type,id,name,status,description,duration,startTime,epic\r\n"
+                + "TASK,1,t,NEW,d,30,2024-06-21T10:00,\r\n"
+                + "EPIC,2,e,NEW,d,,,\r\n"
+                + "\r\n"
+                + "1,2");
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(1, loaded.getAllEpics().size());
+        assertEquals(2, loaded.getHistory().size());
+    }
+
+    @Test
+    public void asyncManagerShouldPersistAfterFlush() throws Exception {
+        AsyncPersistence options = AsyncPersistence.of(Duration.ofMillis(5), 64, true);
+        try (FileBackedTaskManager async = new FileBackedTaskManager(tempFile, 1000, SnapshotFormat.CSV, options)) {
+            Epic epic = new Epic(0, "epic", "d");
+            async.createEpic(epic);
+            for (int i = 0; i < 500; i++) {
+                async.createSubtask(new Subtask(0, "s" + i, "d", TaskStatus.DONE, null, null, epic.getId()));
+            }
+            async.getEpic(epic.getId());
+            async.flush().get(10, TimeUnit.SECONDS);
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+            assertEquals(500, loaded.getAllSubtasks().size());
+            assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).getStatus());
+            assertEquals(List.of(epic), FileBackedTaskManager.loadFromFile(tempFile).getHistory());
+        }
+    }
+
+    @Test
+    public void asyncManagerShouldWriteOnlyLatestOfQueuedSnapshots() throws Exception {
+        AsyncPersistence options = AsyncPersistence.of(Duration.ofMillis(5), 64, true);
+        try (FileBackedTaskManager async = new FileBackedTaskManager(tempFile, 0, SnapshotFormat.CSV, options)) {
+            for (int i = 0; i < 3000; i++) {
+                async.createTask(new Task(0, "t" + i, "d", TaskStatus.NEW, null, null));
+            }
+            async.flush().get(10, TimeUnit.SECONDS);
+
+            assertEquals(3000, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+        }
+    }
+
+    @Test
+    public void snapshotShouldSupersedeQueuedWritesButNotAcrossBarrier() throws Exception {
+        Path log = journalOf(tempFile);
+        List<Integer> written = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (GroupCommitWriter writer = new GroupCommitWriter(AsyncPersistence.of(Duration.ZERO, 1, false), "test")) {
+            // первый снапшот держит поток записи, пока очередь не заполнится
+            writer.submitSnapshot(() -> {
+                written.add(0);
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i <= 5; i++) {
+                int n = i;
+                writer.append(log, "line" + i);
+                writer.submitSnapshot(() -> written.add(n));
+            }
+            CompletableFuture<Void> barrier = writer.flush();
+            writer.submitSnapshot(() -> written.add(6));
+            release.countDown();
+            barrier.get(10, TimeUnit.SECONDS);
+            writer.flush().get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(0, 5, 6), written);
+        assertFalse(Files.exists(log));
+    }
+
+    @Test
+    public void asyncManagerShouldReportWriteErrorsToCallbackAndFlush() throws Exception {
+        Path missing = tempFile.resolveSibling("missing-dir").resolve("tasks.csv");
+        List<Exception> errors = new ArrayList<>();
+        AsyncPersistence options = new AsyncPersistence(Duration.ZERO, 16, false, errors::add);
+        try (FileBackedTaskManager async = new FileBackedTaskManager(missing, 0, SnapshotFormat.CSV, options)) {
+            async.createTask(new Task(0, "t", "d", TaskStatus.NEW, null, null));
+
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> async.flush().get(10, TimeUnit.SECONDS));
+            assertInstanceOf(exceptions.ManagerSaveException.class, e.getCause());
+            assertEquals(1, errors.size());
+            async.flush().get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shouldDropTornLastJournalRecord() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, 100);
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(5), null);
+        journaled.createTask(task);
+        Path log = journalOf(tempFile);
+        long intact = Files.size(log);
+        Files.writeString(log, "PUT," + task.getId() + ",TASK,t", StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(intact, Files.size(log));
+
+        Files.writeString(log, "PU", StandardOpenOption.APPEND);
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+        assertEquals(intact, Files.size(log));
+    }
+
+    @Test
+    public void shouldFailOnCorruptRecordInTheMiddleOfJournal() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, 100);
+        journaled.createTask(new Task(0, "t1", "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+        Path log = journalOf(tempFile);
+        Files.writeString(log, "DEL,x" + System.lineSeparator(), StandardOpenOption.APPEND);
+        journaled.createTask(new Task(0, "t2", "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+
+        assertThrows(exceptions.ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(tempFile));
+    }
+
+    @Test
+    public void deletingMissingIdsShouldNotGrowJournal() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, 100);
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, null, null);
+        journaled.createTask(task);
+        Path log = journalOf(tempFile);
+        long size = Files.size(log);
+
+        journaled.deleteTaskById(999);
+        journaled.deleteEpicById(task.getId());
+        journaled.deleteSubtaskById(999);
+        journaled.deleteByIds(new int[]{998, 999});
+        assertEquals(size, Files.size(log));
+
+        journaled.deleteByIds(new int[]{task.getId(), 999});
+        assertEquals(2, Files.readAllLines(log).size());
+    }
+
+    @Test
+    public void shouldDetectCorruptedCsvSnapshot() throws IOException {
+        manager.createTask(new Task(0, "task", "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+        assertTrue(Files.readString(tempFile).startsWith("#crc32="));
+        assertFalse(Files.exists(tempFile.resolveSibling(tempFile.getFileName() + ".tmp")));
+
+        Files.writeString(tempFile, Files.readString(tempFile).replace("task", "tusk"));
+
+        assertThrows(exceptions.ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(tempFile));
+    }
+
+    @Test
+    public void shouldDetectTruncatedBinarySnapshot() throws IOException {
+        FileBackedTaskManager binary = new FileBackedTaskManager(tempFile, 0, SnapshotFormat.BINARY);
+        binary.createTask(new Task(0, "task", "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+        binary.createTask(new Task(0, "task2", "d", TaskStatus.NEW, Duration.ofMinutes(5), null));
+
+        byte[] bytes = Files.readAllBytes(tempFile);
+        Files.write(tempFile, java.util.Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertThrows(exceptions.ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(tempFile));
+    }
+
+    @Test
+    public void batchShouldBePersistedOnceAndReloaded() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(tempFile, 100);
+        Epic epic = new Epic(0, "e", "d");
+        journaled.createEpic(epic);
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Task(0, "t" + i, "d", TaskStatus.NEW, Duration.ofMinutes(10),
+                    LocalDateTime.of(2024, 6, 21, 10, 0).plusMinutes(20L * i)));
+        }
+        batch.add(new Subtask(0, "s", "d", TaskStatus.NEW, null, null, epic.getId()));
+        assertTrue(journaled.createAll(batch));
+        assertEquals(12, Files.readAllLines(journalOf(tempFile)).size());
+
+        journaled.deleteByIds(new int[]{batch.get(0).getId(), batch.get(10).getId()});
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(9, loaded.getAllTasks().size());
+        assertTrue(loaded.getAllSubtasks().isEmpty());
+        assertEquals(9, loaded.getPrioritizedTasks().size());
+    }
+
+    @Test
+    public void statusIndexShouldBeRebuiltOnLoad() {
+        Epic epic = new Epic(0, "e", "d");
+        manager.createEpic(epic);
+        manager.createSubtask(new Subtask(0, "s", "d", TaskStatus.DONE, null, null, epic.getId()));
+        manager.createTask(new Task(0, "t", "d", TaskStatus.IN_PROGRESS, null, null));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loaded.listSubtasks(0, Integer.MAX_VALUE, TaskStatus.DONE).size());
+        assertEquals(1, loaded.listEpics(0, Integer.MAX_VALUE, TaskStatus.DONE).size());
+        assertEquals(1, loaded.listTasks(0, Integer.MAX_VALUE, TaskStatus.IN_PROGRESS).size());
+        assertTrue(loaded.listTasks(0, Integer.MAX_VALUE, TaskStatus.NEW).isEmpty());
+    }
+
+    @Test
+    public void searchIndexShouldBeRebuiltOnLoad() {
+        Task task = new Task(0, "Найти, исправить", "утечку памяти", TaskStatus.NEW, null, null);
+        manager.createTask(task);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        List<Task> found = loaded.search("исправить утеч*", 10);
+        assertEquals(1, found.size());
+        assertEquals(task.getId(), found.get(0).getId());
+    }
+
+    @Test
+    public void autoScheduledTimesShouldSurviveReload() {
+        LocalDateTime from = LocalDateTime.of(2024, 6, 21, 9, 0);
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(30), null);
+        manager.createTask(task);
+
+        assertEquals(1, manager.autoSchedule(new int[]{task.getId()}, SchedulingOptions.from(from)).size());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(from, loaded.getTask(task.getId()).getStartTime());
+        assertEquals(1, loaded.getPrioritizedTasks().size());
+    }
 }
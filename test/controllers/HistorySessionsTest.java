@@ -0,0 +1,78 @@
+package controllers;
+
+import models.Task;
+import models.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistorySessionsTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private static Task task(int id) {
+        return new Task(id, "T" + id, "D", TaskStatus.NEW, null, null);
+    }
+
+    @Test
+    public void shouldKeepSeparateHistoryPerSession() {
+        HistorySessions sessions = new HistorySessions(10, 10, Duration.ofMinutes(1), clock::get);
+        sessions.add("alice", task(1));
+        sessions.add("bob", task(2));
+        sessions.add("alice", task(3));
+
+        assertEquals(List.of(task(1), task(3)), sessions.getHistory("alice"));
+        assertEquals(List.of(task(2)), sessions.getHistory("bob"));
+        assertTrue(sessions.getHistory("carol").isEmpty());
+        assertEquals(2, sessions.size());
+    }
+
+    @Test
+    public void shouldDropIdleSession() {
+        HistorySessions sessions = new HistorySessions(10, 10, Duration.ofSeconds(30), clock::get);
+        sessions.add("alice", task(1));
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertTrue(sessions.getHistory("alice").isEmpty());
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedSessionWhenFull() {
+        HistorySessions sessions = new HistorySessions(10, 2, Duration.ofMinutes(1), clock::get);
+        sessions.add("alice", task(1));
+        clock.incrementAndGet();
+        sessions.add("bob", task(2));
+        clock.incrementAndGet();
+        sessions.getHistory("alice"); // alice снова активна, самой давней стала bob
+        clock.incrementAndGet();
+
+        sessions.add("carol", task(3));
+
+        assertEquals(2, sessions.size());
+        assertEquals(List.of(task(1)), sessions.getHistory("alice"));
+        assertTrue(sessions.getHistory("bob").isEmpty());
+    }
+
+    @Test
+    public void shouldBoundEachSessionHistory() {
+        HistorySessions sessions = new HistorySessions(2, 10, Duration.ofMinutes(1), clock::get);
+        sessions.add("alice", task(1));
+        sessions.add("alice", task(2));
+        sessions.add("alice", task(3));
+
+        assertEquals(List.of(task(2), task(3)), sessions.getHistory("alice"));
+    }
+
+    @Test
+    public void shouldRejectOversizedKey() {
+        HistorySessions sessions = new HistorySessions();
+        assertThrows(IllegalArgumentException.class,
+                () -> sessions.add("x".repeat(HistorySessions.MAX_KEY_LENGTH + 1), task(1)));
+    }
+}
@@ -5,13 +5,21 @@ import models.*;
 import org.junit.jupiter.api.*;
 import http.GsonFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class HttpTaskManagerTasksTest {
@@ -81,4 +89,447 @@ public class HttpTaskManagerTasksTest {
         assertEquals(200, response.statusCode());
         assertTrue(manager.getAllTasks().isEmpty());
     }
+
+    @Test
+    public void shouldServeConcurrentRequests() {
+        HttpClient client = HttpClient.newHttpClient();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Task task = new Task(0, "Task " + i, "desc", TaskStatus.NEW, Duration.ofMinutes(15), null);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.join().statusCode());
+        }
+        assertEquals(50, manager.getAllTasks().size());
+    }
+
+    @Test
+    public void shouldReturnCompactJsonList() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        manager.createTask(new Task(0, "Second", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertFalse(response.body().contains("\n"));
+        Task[] returned = gson.fromJson(response.body(), Task[].class);
+        assertEquals(2, returned.length);
+    }
+
+    @Test
+    public void shouldReturnPageOfTasks() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task(0, "Task " + i, "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        }
+        int secondId = manager.getAllTasks().get(1).getId();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?after=" + secondId + "&limit=2&status=NEW"))
+                .GET()
+                .build();
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        Task[] returned = gson.fromJson(response.body(), Task[].class);
+        assertEquals(2, returned.length);
+        assertEquals(secondId + 1, returned[0].getId());
+    }
+
+    @Test
+    public void shouldRejectUnknownStatusFilter() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=UNKNOWN"))
+                .GET()
+                .build();
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    public void shouldKeepHistoryPerSessionHeader() throws IOException, InterruptedException {
+        Task first = new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null);
+        Task second = new Task(0, "Second", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null);
+        manager.createTask(first);
+        manager.createTask(second);
+        HttpClient client = HttpClient.newHttpClient();
+        client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks?id=" + first.getId()))
+                .header(http.BaseHttpHandler.SESSION_HEADER, "alice").GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks?id=" + second.getId()))
+                .header(http.BaseHttpHandler.SESSION_HEADER, "bob").GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> alice = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/history"))
+                .header(http.BaseHttpHandler.SESSION_HEADER, "alice").GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> global = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/history"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, alice.statusCode());
+        Task[] aliceHistory = gson.fromJson(alice.body(), Task[].class);
+        assertEquals(1, aliceHistory.length);
+        assertEquals(first.getId(), aliceHistory[0].getId());
+        assertEquals(0, gson.fromJson(global.body(), Task[].class).length);
+    }
+
+    @Test
+    public void shouldRefreshCachedListAfterChange() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest list = HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks")).GET().build();
+
+        String first = client.send(list, HttpResponse.BodyHandlers.ofString()).body();
+        assertEquals(first, client.send(list, HttpResponse.BodyHandlers.ofString()).body());
+
+        manager.createTask(new Task(0, "Second", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        HttpResponse<String> second = client.send(list, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, second.statusCode());
+        assertEquals(2, gson.fromJson(second.body(), Task[].class).length);
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedForUnchangedCollection() throws IOException, InterruptedException {
+        Task task = new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null);
+        manager.createTask(task);
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> first = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks"))
+                .header("If-None-Match", etag).GET().build();
+        HttpResponse<String> unchanged = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, unchanged.statusCode());
+        assertEquals("", unchanged.body());
+
+        manager.getTask(task.getId()); // просмотр меняет историю, но не список задач
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        manager.deleteTaskById(task.getId());
+        HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    public void shouldChangeHistoryETagAfterView() throws IOException, InterruptedException {
+        Task task = new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null);
+        manager.createTask(task);
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest history = HttpRequest.newBuilder(URI.create("http://localhost:8080/history")).GET().build();
+        String etag = client.send(history, HttpResponse.BodyHandlers.ofString()).headers()
+                .firstValue("ETag").orElseThrow();
+        HttpRequest conditional = HttpRequest.newBuilder(URI.create("http://localhost:8080/history"))
+                .header("If-None-Match", etag).GET().build();
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        manager.getTask(task.getId());
+
+        HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertEquals(1, gson.fromJson(changed.body(), Task[].class).length);
+    }
+
+    @Test
+    public void shouldGiveDifferentETagsToSessionsWithEqualHashCodes() throws IOException, InterruptedException {
+        Task task = new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null);
+        manager.createTask(task);
+        manager.getTask(task.getId(), "Aa");
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        HttpClient client = HttpClient.newHttpClient();
+        String etag = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/history"))
+                        .header(http.BaseHttpHandler.SESSION_HEADER, "Aa").GET().build(),
+                HttpResponse.BodyHandlers.ofString()).headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> other = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/history"))
+                        .header(http.BaseHttpHandler.SESSION_HEADER, "BB").header("If-None-Match", etag).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, other.statusCode());
+        assertEquals(0, gson.fromJson(other.body(), Task[].class).length);
+    }
+
+    @Test
+    public void shouldCompressLargeListWhenClientAcceptsGzip() throws IOException, InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            manager.createTask(new Task(0, "Task " + i, "long description ".repeat(10), TaskStatus.NEW,
+                    Duration.ofMinutes(15), null));
+        }
+        HttpClient client = HttpClient.newHttpClient();
+        for (String uri : List.of("http://localhost:8080/tasks", "http://localhost:8080/tasks?limit=40")) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                    .header("Accept-Encoding", "gzip").GET().build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, response.statusCode());
+            assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElseThrow());
+            String body;
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(response.body().length < body.length());
+            assertEquals(uri.contains("limit") ? 40 : 50, gson.fromJson(body, Task[].class).length);
+        }
+
+        HttpRequest plain = HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks")).GET().build();
+        HttpResponse<String> response = client.send(plain, HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(50, gson.fromJson(response.body(), Task[].class).length);
+    }
+
+    @Test
+    public void shouldNotCompressSmallOrDisabledResponses() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "Small", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks"))
+                .header("Accept-Encoding", "gzip").GET().build();
+        HttpResponse<String> small = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(1, gson.fromJson(small.body(), Task[].class).length);
+
+        taskServer.setCompressionThreshold(0);
+        HttpResponse<byte[]> compressed = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", compressed.headers().firstValue("Content-Encoding").orElseThrow());
+
+        taskServer.setCompressionThreshold(-1);
+        HttpResponse<String> disabled = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertTrue(disabled.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    @Test
+    public void shouldRespectGzipQualityValues() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "Small", "desc", TaskStatus.NEW, Duration.ofMinutes(15), null));
+        taskServer.setCompressionThreshold(0);
+        HttpClient client = HttpClient.newHttpClient();
+        Map<String, Boolean> cases = Map.of(
+                "gzip;q=0", false,
+                "gzip; Q=0.000", false,
+                "*;q=1, gzip;q=0", false,
+                "gzip;q=0, *", false,
+                "identity, *;q=0", false,
+                "br, gzip;q=0.5", true,
+                "*", true,
+                "deflate, GZIP;q=1.0", true);
+        for (Map.Entry<String, Boolean> entry : cases.entrySet()) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks"))
+                    .header("Accept-Encoding", entry.getKey()).GET().build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            boolean compressed = response.headers().firstValue("Content-Encoding").isPresent();
+            assertEquals(entry.getValue(), compressed, entry.getKey());
+        }
+    }
+
+    @Test
+    public void slowRequestBodyShouldNotBlockOtherRequests() throws Exception {
+        try (java.net.Socket slow = new java.net.Socket("localhost", HttpTaskServer.PORT)) {
+            // тело обещано, но не отправлено: обработчик ждёт его в readBody
+            slow.getOutputStream().write(("POST /tasks HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: 100\r\n\r\n{").getBytes(StandardCharsets.US_ASCII));
+            slow.getOutputStream().flush();
+            Thread.sleep(200);
+
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks"))
+                    .timeout(Duration.ofSeconds(5)).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+        }
+    }
+
+    @Test
+    public void shouldAnswerNotFoundForUnknownTaskOrEpicOnPost() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        Task unknown = new Task(999, "X", "desc", TaskStatus.NEW, null, null);
+        HttpResponse<String> update = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(unknown))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, update.statusCode());
+
+        Subtask orphan = new Subtask(0, "S", "desc", TaskStatus.NEW, null, null, 999);
+        HttpResponse<String> create = client.send(HttpRequest.newBuilder(URI.create("http://localhost:8080/subtasks"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(orphan))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, create.statusCode());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    public void shouldAnswerCreatedOnlyForStoredTaskUnderConcurrentPosts() throws Exception {
+        taskServer.stop();
+        manager = new ConcurrentTaskManager();
+        taskServer = new HttpTaskServer(manager);
+        taskServer.start();
+
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        HttpClient client = HttpClient.newHttpClient();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Task task = new Task(0, "t" + i, "desc", TaskStatus.NEW, Duration.ofMinutes(60), start.plusMinutes(i));
+            responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks"))
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task))).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int code = response.get().statusCode();
+            assertTrue(code == 201 || code == 406);
+            if (code == 201) created++;
+        }
+        assertEquals(1, created);
+        assertEquals(1, manager.getAllTasks().size());
+    }
+
+    @Test
+    public void shouldCreateAndDeleteTasksInBatch() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        List<Task> batch = List.of(
+                new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(15), start),
+                new Task(0, "Second", "desc", TaskStatus.NEW, Duration.ofMinutes(15), start.plusHours(1)));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest create = HttpRequest.newBuilder(URI.create("http://localhost:8080/tasks/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(batch))).build();
+        HttpResponse<String> created = client.send(create, HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, created.statusCode());
+        int[] ids = gson.fromJson(created.body(), int[].class);
+        assertEquals(2, ids.length);
+        assertEquals(2, manager.getAllTasks().size());
+
+        // повтор пересекается с уже созданными - не создаётся ничего
+        assertEquals(406, client.send(create, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(2, manager.getAllTasks().size());
+
+        HttpRequest delete = HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/tasks/batch?ids=" + ids[0] + "," + ids[1])).DELETE().build();
+        assertEquals(200, client.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertTrue(manager.getAllTasks().isEmpty());
+    }
+
+    @Test
+    public void shouldFilterSubtasksByStatusAndEpic() throws IOException, InterruptedException {
+        Epic epic = new Epic(0, "Epic", "desc");
+        Epic other = new Epic(0, "Other", "desc");
+        manager.createEpic(epic);
+        manager.createEpic(other);
+        manager.createSubtask(new Subtask(0, "Done", "desc", TaskStatus.DONE, null, null, epic.getId()));
+        manager.createSubtask(new Subtask(0, "New", "desc", TaskStatus.NEW, null, null, epic.getId()));
+        manager.createSubtask(new Subtask(0, "Elsewhere", "desc", TaskStatus.DONE, null, null, other.getId()));
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<String> done = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/subtasks?status=DONE")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, gson.fromJson(done.body(), Subtask[].class).length);
+
+        HttpResponse<String> ofEpic = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/epics/" + epic.getId() + "/subtasks")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, ofEpic.statusCode());
+        Subtask[] returned = gson.fromJson(ofEpic.body(), Subtask[].class);
+        assertEquals(2, returned.length);
+        assertEquals(epic.getId(), returned[0].getEpicId());
+
+        HttpResponse<String> missing = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/epics/999/subtasks")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, missing.statusCode());
+    }
+
+    @Test
+    public void shouldSearchByWordsAndPrefix() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "Deploy backend", "desc", TaskStatus.NEW, null, null));
+        manager.createTask(new Task(0, "Deploy frontend", "desc", TaskStatus.NEW, null, null));
+        manager.createTask(new Task(0, "Write docs", "desc", TaskStatus.NEW, null, null));
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<String> both = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/search?q=deploy")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, both.statusCode());
+        assertEquals(2, gson.fromJson(both.body(), Task[].class).length);
+
+        HttpResponse<String> prefix = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/search?q=deploy%20front*&limit=5")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Task[] returned = gson.fromJson(prefix.body(), Task[].class);
+        assertEquals(1, returned.length);
+        assertEquals("Deploy frontend", returned[0].getName());
+
+        HttpResponse<String> missing = client.send(HttpRequest.newBuilder(
+                URI.create("http://localhost:8080/search")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, missing.statusCode());
+    }
+
+    @Test
+    public void shouldServePrioritizedRangeAndFreeSlot() throws IOException, InterruptedException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 9, 0);
+        manager.createTask(new Task(0, "First", "desc", TaskStatus.NEW, Duration.ofMinutes(60), start));
+        manager.createTask(new Task(0, "Second", "desc", TaskStatus.NEW, Duration.ofMinutes(60), start.plusDays(1)));
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<String> day = client.send(HttpRequest.newBuilder(URI.create(
+                "http://localhost:8080/prioritized?from=2024-06-21T00:00&to=2024-06-22T00:00")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, day.statusCode());
+        Task[] returned = gson.fromJson(day.body(), Task[].class);
+        assertEquals(1, returned.length);
+        assertEquals("First", returned[0].getName());
+
+        HttpResponse<String> free = client.send(HttpRequest.newBuilder(URI.create(
+                "http://localhost:8080/prioritized/free?duration=PT30M&after=2024-06-21T09:30")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, free.statusCode());
+        assertTrue(free.body().contains("2024-06-21T10:01:00"));
+
+        for (String duration : new String[]{"PT0M", "-PT30M"}) {
+            HttpResponse<String> empty = client.send(HttpRequest.newBuilder(URI.create(
+                    "http://localhost:8080/prioritized/free?duration=" + duration)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, empty.statusCode(), duration);
+        }
+
+        HttpResponse<String> bad = client.send(HttpRequest.newBuilder(URI.create(
+                "http://localhost:8080/prioritized?from=yesterday")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, bad.statusCode());
+    }
+
+    @Test
+    public void shouldAutoScheduleViaHttp() throws IOException, InterruptedException {
+        manager.createTask(new Task(0, "Busy", "desc", TaskStatus.NEW, Duration.ofMinutes(60),
+                LocalDateTime.of(2024, 6, 21, 9, 0)));
+        Task later = new Task(0, "Later", "desc", TaskStatus.NEW, Duration.ofMinutes(30), null);
+        manager.createTask(later);
+        Task other = new Task(0, "Other", "desc", TaskStatus.NEW, Duration.ofMinutes(30), null);
+        manager.createTask(other);
+        HttpClient client = HttpClient.newHttpClient();
+        URI schedule = URI.create(
+                "http://localhost:8080/prioritized/schedule?from=2024-06-21T09:00&workStart=09:00&workEnd=18:00");
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(schedule)
+                .POST(HttpRequest.BodyPublishers.ofString("[" + later.getId() + "]")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        Task[] placed = gson.fromJson(response.body(), Task[].class);
+        assertEquals(1, placed.length);
+        assertEquals(later.getId(), placed[0].getId());
+        assertEquals(LocalDateTime.of(2024, 6, 21, 10, 1), placed[0].getStartTime());
+        assertNull(manager.getTask(other.getId()).getStartTime());
+        assertEquals(2, ((InMemoryTaskManager) manager).getPrioritizedTasks().size());
+
+        HttpResponse<String> missing = client.send(HttpRequest.newBuilder(schedule)
+                .POST(HttpRequest.BodyPublishers.ofString("[999]")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, missing.statusCode());
+
+        HttpResponse<String> bad = client.send(HttpRequest.newBuilder(URI.create(
+                "http://localhost:8080/prioritized/schedule?from=2024-06-21T09:00&workStart=09:00"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, bad.statusCode());
+    }
 }
@@ -7,7 +7,11 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -85,4 +89,53 @@ public class InMemoryHistoryManagerTest {
         assertEquals(1, history.size());
         assertEquals(task, history.get(0));
     }
+
+    @Test
+    public void shouldEvictLeastRecentlyViewedWhenFull() {
+        HistoryManager bounded = new InMemoryHistoryManager(3);
+        Task t1 = new Task(1, "T1", "D", TaskStatus.NEW, null, null);
+        Task t2 = new Task(2, "T2", "D", TaskStatus.NEW, null, null);
+        Task t3 = new Task(3, "T3", "D", TaskStatus.NEW, null, null);
+        Task t4 = new Task(4, "T4", "D", TaskStatus.NEW, null, null);
+        bounded.add(t1);
+        bounded.add(t2);
+        bounded.add(t3);
+        bounded.add(t1); // t1 снова свежий, самым давним стал t2
+
+        bounded.add(t4);
+
+        assertEquals(List.of(t3, t1, t4), bounded.getHistory());
+    }
+
+    @Test
+    public void shouldRejectNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+
+    @Test
+    public void shouldMatchReferenceLruUnderRandomOperations() {
+        int capacity = 50;
+        HistoryManager bounded = new InMemoryHistoryManager(capacity);
+        Map<Integer, Task> reference = new LinkedHashMap<>();
+        Task[] pool = new Task[200];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Task(i, "T" + i, "D", TaskStatus.NEW, null, null);
+        }
+        Random random = new Random(42);
+        for (int step = 0; step < 100_000; step++) {
+            Task task = pool[random.nextInt(pool.length)];
+            if (random.nextInt(4) == 0) {
+                bounded.remove(task.getId());
+                reference.remove(task.getId());
+            } else {
+                bounded.add(task);
+                reference.remove(task.getId());
+                reference.put(task.getId(), task);
+                if (reference.size() > capacity) {
+                    reference.remove(reference.keySet().iterator().next());
+                }
+            }
+        }
+        assertEquals(new ArrayList<>(reference.values()), bounded.getHistory());
+    }
 }
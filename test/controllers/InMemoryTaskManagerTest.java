@@ -40,6 +40,25 @@ public class InMemoryTaskManagerTest {
         assertTrue(manager.isTimeIntersect(a, b));
     }
 
+    @Test
+    public void createAndUpdateShouldReportOverlapAndMissingTarget() {
+        LocalDateTime t1 = LocalDateTime.of(2024, 6, 21, 12, 0);
+        Task a = new Task(0, "A", "d", TaskStatus.NEW, Duration.ofMinutes(60), t1);
+        Task b = new Task(0, "B", "d", TaskStatus.NEW, Duration.ofMinutes(60), t1.plusHours(2));
+        assertTrue(manager.createTask(a));
+        assertTrue(manager.createTask(b));
+        assertFalse(manager.createTask(new Task(0, "C", "d", TaskStatus.NEW, Duration.ofMinutes(60), t1.plusMinutes(30))));
+
+        assertFalse(manager.updateTask(new Task(b.getId(), "B", "d", TaskStatus.DONE, Duration.ofMinutes(60), t1)));
+        assertTrue(manager.updateTask(new Task(b.getId(), "B", "d", TaskStatus.DONE, Duration.ofMinutes(60),
+                t1.plusHours(3))));
+        assertThrows(exceptions.NotFoundException.class,
+                () -> manager.updateTask(new Task(999, "X", "d", TaskStatus.NEW, null, null)));
+        assertThrows(exceptions.NotFoundException.class,
+                () -> manager.createSubtask(new Subtask(0, "s", "d", TaskStatus.NEW, null, null, 999)));
+        assertEquals(2, manager.getAllTasks().size());
+    }
+
     @Test
     public void intersectionShouldReturnFalseIfNotOverlaps() {
         LocalDateTime t1 = LocalDateTime.of(2024, 6, 21, 12, 0);
@@ -105,4 +124,275 @@ public class InMemoryTaskManagerTest {
         assertEquals(1, subtasks.size());
         assertTrue(prioritized.isEmpty());
     }
+
+    @Test
+    public void findConflictsShouldReturnOnlyOverlappingTasks() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 8, 0);
+        for (int i = 0; i < 10; i++) {
+            manager.createTask(new Task(0, "t" + i, "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(i)));
+        }
+        Task probe = new Task(0, "probe", "d", TaskStatus.NEW, Duration.ofMinutes(90), start.plusHours(3).plusMinutes(15));
+
+        List<Task> conflicts = manager.findConflicts(probe);
+
+        assertEquals(2, conflicts.size());
+        assertEquals(start.plusHours(3), conflicts.get(0).getStartTime());
+        assertEquals(start.plusHours(4), conflicts.get(1).getStartTime());
+    }
+
+    @Test
+    public void intersectionCheckShouldHandleManyScheduledTasks() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        int count = 100_000;
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < count; i++) {
+                manager.createTask(new Task(0, "t" + i, "d", TaskStatus.NEW, Duration.ofMinutes(10), start.plusMinutes(15L * i)));
+            }
+        });
+        assertEquals(count, manager.getPrioritizedTasks().size());
+        Task overlapping = new Task(0, "x", "d", TaskStatus.NEW, Duration.ofMinutes(10), start.plusMinutes(15L * (count / 2) + 5));
+        assertTrue(manager.hasIntersections(overlapping));
+    }
+
+    @Test
+    public void listTasksShouldPageByIdAndFilterByStatus() {
+        for (int i = 0; i < 10; i++) {
+            TaskStatus status = i % 2 == 0 ? TaskStatus.NEW : TaskStatus.DONE;
+            manager.createTask(new Task(0, "t" + i, "d", status, Duration.ofMinutes(5), null));
+        }
+
+        List<Task> first = manager.listTasks(0, 3, null);
+        assertEquals(List.of(1, 2, 3), first.stream().map(Task::getId).toList());
+        List<Task> next = manager.listTasks(first.get(2).getId(), 3, null);
+        assertEquals(List.of(4, 5, 6), next.stream().map(Task::getId).toList());
+
+        List<Task> done = manager.listTasks(0, 100, TaskStatus.DONE);
+        assertEquals(5, done.size());
+        assertTrue(done.stream().allMatch(t -> t.getStatus() == TaskStatus.DONE));
+    }
+
+    @Test
+    public void sessionHistoryShouldBeSeparateFromGlobalAndSkipDeletedTasks() {
+        Task t1 = new Task(0, "t1", "d", TaskStatus.NEW, null, null);
+        Task t2 = new Task(0, "t2", "d", TaskStatus.NEW, null, null);
+        manager.createTask(t1);
+        manager.createTask(t2);
+
+        manager.getTask(t1.getId(), "alice");
+        manager.getTask(t2.getId(), "alice");
+        manager.getTask(t2.getId(), "bob");
+        manager.deleteTaskById(t1.getId());
+
+        assertEquals(List.of(t2), manager.getHistory("alice"));
+        assertEquals(List.of(t2), manager.getHistory("bob"));
+        assertTrue(manager.getHistory().isEmpty());
+
+        manager.getTask(t2.getId(), null);
+        assertEquals(List.of(t2), manager.getHistory());
+    }
+
+    @Test
+    public void shouldReuseListViewsUntilCollectionChanges() {
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(10), LocalDateTime.of(2024, 6, 21, 10, 0));
+        manager.createTask(task);
+        Epic epic = new Epic(0, "e", "d");
+        manager.createEpic(epic);
+
+        List<Task> tasks = manager.getAllTasks();
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        long epicsVersion = manager.getVersion(TaskCollection.EPICS);
+        assertSame(tasks, manager.getAllTasks());
+        assertSame(prioritized, manager.getPrioritizedTasks());
+        assertThrows(UnsupportedOperationException.class, () -> tasks.add(task));
+
+        manager.getTask(task.getId()); // просмотр коллекцию не меняет
+        assertSame(tasks, manager.getAllTasks());
+
+        manager.createSubtask(new Subtask(0, "s", "d", TaskStatus.DONE, null, null, epic.getId()));
+        // статус эпика пересчитан - его сериализованный вид тоже устарел
+        assertTrue(manager.getVersion(TaskCollection.EPICS) > epicsVersion);
+        assertSame(tasks, manager.getAllTasks());
+
+        manager.deleteTaskById(task.getId());
+        assertNotSame(tasks, manager.getAllTasks());
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    public void createAllShouldRejectWholeBatchOnOverlap() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        manager.createTask(new Task(0, "existing", "d", TaskStatus.NEW, Duration.ofMinutes(30), start));
+        Epic epic = new Epic(0, "e", "d");
+        manager.createEpic(epic);
+
+        // пересечение внутри пакета
+        assertFalse(manager.createAll(List.of(
+                new Task(0, "a", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(2)),
+                new Task(0, "b", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(2).plusMinutes(15)))));
+        // пересечение с существующей задачей
+        assertFalse(manager.createAll(List.of(
+                new Task(0, "c", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(3)),
+                new Subtask(0, "s", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusMinutes(10), epic.getId()))));
+        assertEquals(1, manager.getAllTasks().size());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+
+        assertTrue(manager.createAll(List.of(
+                new Task(0, "late", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(4)),
+                new Task(0, "untimed", "d", TaskStatus.NEW, null, null),
+                new Subtask(0, "s", "d", TaskStatus.DONE, Duration.ofMinutes(30), start.plusHours(1), epic.getId()))));
+        assertEquals(3, manager.getAllTasks().size());
+        assertEquals(1, manager.getAllSubtasks().size());
+        assertEquals(3, manager.getPrioritizedTasks().size());
+        assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).getStatus());
+    }
+
+    @Test
+    public void createAllShouldRequireExistingEpic() {
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, null, null);
+        assertThrows(exceptions.NotFoundException.class, () -> manager.createAll(List.of(task,
+                new Subtask(0, "s", "d", TaskStatus.NEW, null, null, 999))));
+        assertTrue(manager.getAllTasks().isEmpty());
+    }
+
+    @Test
+    public void deleteByIdsShouldRemoveAnyTypeOnce() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 10, 0);
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, Duration.ofMinutes(30), start);
+        Epic epic = new Epic(0, "e", "d");
+        manager.createTask(task);
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask(0, "s", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusHours(1), epic.getId());
+        manager.createSubtask(subtask);
+        Task kept = new Task(0, "kept", "d", TaskStatus.NEW, null, null);
+        manager.createTask(kept);
+        manager.getTask(task.getId());
+        long version = manager.getVersion(TaskCollection.TASKS);
+
+        manager.deleteByIds(new int[]{task.getId(), subtask.getId(), 12345});
+
+        assertEquals(version + 1, manager.getVersion(TaskCollection.TASKS));
+        assertEquals(List.of(kept), manager.getAllTasks());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertTrue(manager.getEpic(epic.getId()).getSubtasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        assertFalse(manager.getHistory().contains(task));
+    }
+
+    @Test
+    public void statusIndexShouldFollowUpdatesAndEpicStatus() {
+        Epic epic = new Epic(0, "e", "d");
+        manager.createEpic(epic);
+        Subtask first = new Subtask(0, "s1", "d", TaskStatus.NEW, null, null, epic.getId());
+        Subtask second = new Subtask(0, "s2", "d", TaskStatus.NEW, null, null, epic.getId());
+        manager.createSubtask(first);
+        manager.createSubtask(second);
+        Task task = new Task(0, "t", "d", TaskStatus.NEW, null, null);
+        manager.createTask(task);
+
+        // статус поменяли на самом хранимом объекте, затем передали его в update
+        task.setStatus(TaskStatus.DONE);
+        manager.updateTask(task);
+        assertEquals(List.of(task), manager.listTasks(0, Integer.MAX_VALUE, TaskStatus.DONE));
+        assertTrue(manager.listTasks(0, Integer.MAX_VALUE, TaskStatus.NEW).isEmpty());
+
+        manager.updateSubtask(new Subtask(first.getId(), "s1", "d", TaskStatus.DONE, null, null, epic.getId()));
+        assertEquals(1, manager.listSubtasks(0, Integer.MAX_VALUE, TaskStatus.DONE).size());
+        assertEquals(List.of(epic), manager.listEpics(0, Integer.MAX_VALUE, TaskStatus.IN_PROGRESS));
+
+        manager.deleteSubtaskById(second.getId());
+        assertEquals(List.of(epic), manager.listEpics(0, Integer.MAX_VALUE, TaskStatus.DONE));
+        assertTrue(manager.listEpics(0, Integer.MAX_VALUE, TaskStatus.IN_PROGRESS).isEmpty());
+
+        manager.clearSubtasks();
+        assertTrue(manager.listSubtasks(0, Integer.MAX_VALUE, TaskStatus.DONE).isEmpty());
+        assertEquals(List.of(epic), manager.listEpics(0, Integer.MAX_VALUE, TaskStatus.NEW));
+    }
+
+    @Test
+    public void getEpicSubtasksShouldReturnOnlyThatEpic() {
+        Epic a = new Epic(0, "a", "d");
+        Epic b = new Epic(0, "b", "d");
+        manager.createEpic(a);
+        manager.createEpic(b);
+        Subtask s1 = new Subtask(0, "s1", "d", TaskStatus.NEW, null, null, a.getId());
+        Subtask s2 = new Subtask(0, "s2", "d", TaskStatus.NEW, null, null, b.getId());
+        manager.createSubtask(s1);
+        manager.createSubtask(s2);
+
+        assertEquals(List.of(s1), manager.getEpicSubtasks(a.getId()));
+        assertEquals(List.of(s2), manager.getEpicSubtasks(b.getId()));
+        assertThrows(exceptions.NotFoundException.class, () -> manager.getEpicSubtasks(999));
+    }
+
+    @Test
+    public void searchShouldFollowUpdatesAndDeletes() {
+        Epic epic = new Epic(0, "Миграция базы", "перенос данных");
+        manager.createEpic(epic);
+        Subtask subtask = new Subtask(0, "Скрипт миграции", "данные пользователей", TaskStatus.NEW, null, null,
+                epic.getId());
+        manager.createSubtask(subtask);
+        Task task = new Task(0, "Обзор кода", "данные не трогать", TaskStatus.NEW, null, null);
+        manager.createTask(task);
+
+        assertEquals(List.of(epic, subtask, task), manager.search("данн*", 10));
+        assertEquals(List.of(epic), manager.search("миграция", 10));
+        assertEquals(List.of(subtask), manager.search("миграции данные", 10));
+
+        manager.updateEpic(new Epic(epic.getId(), "Переезд", "перенос данных"));
+        assertTrue(manager.search("миграция", 10).isEmpty());
+        assertEquals(List.of(epic), manager.search("переезд", 10));
+
+        manager.deleteEpicById(epic.getId());
+        assertEquals(List.of(task), manager.search("данн*", 10));
+        manager.clearTasks();
+        assertTrue(manager.search("данн*", 10).isEmpty());
+    }
+
+    @Test
+    public void getTasksBetweenShouldReturnOnlyOverlappingRange() {
+        LocalDateTime day = LocalDateTime.of(2024, 6, 21, 0, 0);
+        Task night = new Task(0, "night", "d", TaskStatus.NEW, Duration.ofHours(3), day.minusHours(1));
+        Task morning = new Task(0, "morning", "d", TaskStatus.NEW, Duration.ofHours(1), day.plusHours(9));
+        Task evening = new Task(0, "evening", "d", TaskStatus.NEW, Duration.ofHours(1), day.plusHours(20));
+        Task tomorrow = new Task(0, "tomorrow", "d", TaskStatus.NEW, Duration.ofHours(1), day.plusDays(1));
+        manager.createTask(night);
+        manager.createTask(morning);
+        manager.createTask(evening);
+        manager.createTask(tomorrow);
+        manager.createTask(new Task(0, "unscheduled", "d", TaskStatus.NEW, null, null));
+
+        assertEquals(List.of(night, morning, evening), manager.getTasksBetween(day, day.plusDays(1)));
+        assertEquals(List.of(morning), manager.getTasksBetween(day.plusHours(9).plusMinutes(30), day.plusHours(12)));
+        assertEquals(List.of(tomorrow), manager.getTasksBetween(day.plusDays(1), day.plusDays(2)));
+        assertTrue(manager.getTasksBetween(day.plusHours(12), day.plusHours(13)).isEmpty());
+        assertTrue(manager.getTasksBetween(day.plusHours(13), day.plusHours(12)).isEmpty());
+    }
+
+    @Test
+    public void nextFreeSlotShouldSkipBusyIntervals() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 9, 0);
+        manager.createTask(new Task(0, "a", "d", TaskStatus.NEW, Duration.ofMinutes(60), start));
+        manager.createTask(new Task(0, "b", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusMinutes(90)));
+        manager.createTask(new Task(0, "c", "d", TaskStatus.NEW, Duration.ofMinutes(30), start.plusMinutes(150)));
+
+        // до первой задачи помещается
+        assertEquals(start.minusHours(2), manager.nextFreeSlot(Duration.ofMinutes(30), start.minusHours(2)));
+        // внутри a: после неё зазор 10:01-10:30 слишком мал для 30 минут, после b - 11:01-11:30 тоже
+        assertEquals(start.plusMinutes(181), manager.nextFreeSlot(Duration.ofMinutes(30), start.plusMinutes(10)));
+        assertEquals(start.plusMinutes(61), manager.nextFreeSlot(Duration.ofMinutes(20), start.plusMinutes(10)));
+
+        LocalDateTime slot = manager.nextFreeSlot(Duration.ofMinutes(45), start);
+        Task placed = new Task(0, "placed", "d", TaskStatus.NEW, Duration.ofMinutes(45), slot);
+        manager.createTask(placed);
+        assertTrue(manager.getPrioritizedTasks().contains(placed));
+    }
+
+    @Test
+    public void nextFreeSlotShouldRejectEmptyDuration() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 21, 9, 0);
+        assertThrows(IllegalArgumentException.class, () -> manager.nextFreeSlot(Duration.ZERO, start));
+        assertThrows(IllegalArgumentException.class, () -> manager.nextFreeSlot(Duration.ofMinutes(-30), start));
+        assertThrows(IllegalArgumentException.class, () -> manager.nextFreeSlot(null, start));
+    }
 }
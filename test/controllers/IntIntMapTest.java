@@ -0,0 +1,51 @@
+package controllers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntIntMapTest {
+
+    @Test
+    public void shouldPutGetAndRemove() {
+        IntIntMap map = new IntIntMap(4);
+        map.put(7, 1);
+        map.put(-3, 2);
+        map.put(7, 3);
+
+        assertEquals(3, map.get(7));
+        assertEquals(2, map.get(-3));
+        assertEquals(IntIntMap.MISSING, map.get(8));
+        assertEquals(2, map.size());
+
+        assertEquals(3, map.remove(7));
+        assertEquals(IntIntMap.MISSING, map.remove(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldMatchHashMapUnderRandomOperations() {
+        IntIntMap map = new IntIntMap(4);
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 200_000; step++) {
+            // узкий диапазон ключей даёт много коллизий и удалений посреди цепочек
+            int key = random.nextInt(2_000) * 1024;
+            if (random.nextBoolean()) {
+                map.put(key, step);
+                reference.put(key, step);
+            } else {
+                assertEquals((int) reference.getOrDefault(key, IntIntMap.MISSING), map.remove(key));
+                reference.remove(key);
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (int key = 0; key < 2_000 * 1024; key += 1024) {
+            assertEquals((int) reference.getOrDefault(key, IntIntMap.MISSING), map.get(key));
+        }
+    }
+}
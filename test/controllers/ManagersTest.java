@@ -26,4 +26,14 @@ public class ManagersTest {
         TaskManager taskManager2 = Managers.getDefault();
         assertNotSame(taskManager1, taskManager2, "Возвращаем новый экземляр");
     }
+
+    @Test
+    public void shouldReturnConcurrentTaskManager() {
+        assertInstanceOf(ConcurrentTaskManager.class, Managers.getConcurrent());
+    }
+
+    @Test
+    public void shouldReturnConcurrentHistoryManager() {
+        assertInstanceOf(ConcurrentHistoryManager.class, Managers.getConcurrentHistory());
+    }
 }
@@ -0,0 +1,71 @@
+package controllers;
+
+import models.Task;
+import models.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new SearchIndex();
+        index.put(task(1, "Отчёт за квартал", "Собрать цифры продаж"));
+        index.put(task(2, "Отчётность", "Проверить цифры"));
+        index.put(task(3, "Release notes", "Write notes for release 2.1"));
+        index.put(task(4, "Квартальный план", null));
+    }
+
+    private static Task task(int id, String name, String description) {
+        return new Task(id, name, description, TaskStatus.NEW, null, null);
+    }
+
+    @Test
+    public void shouldFindByAllWordsIgnoringCase() {
+        assertArrayEquals(new int[]{1, 2}, index.search("ЦИФРЫ", 10));
+        assertArrayEquals(new int[]{1}, index.search("цифры продаж", 10));
+        assertArrayEquals(new int[]{3}, index.search("release, notes", 10));
+        assertArrayEquals(new int[0], index.search("цифры release", 10));
+        assertArrayEquals(new int[0], index.search("отсутствует", 10));
+        assertArrayEquals(new int[0], index.search("  ,", 10));
+    }
+
+    @Test
+    public void shouldMatchPrefixes() {
+        assertArrayEquals(new int[]{1, 2}, index.search("отчёт*", 10));
+        assertArrayEquals(new int[]{1, 4}, index.search("квартал*", 10));
+        assertArrayEquals(new int[]{2}, index.search("отч* провер*", 10));
+        assertArrayEquals(new int[]{1}, index.search("цифры квартал*", 10));
+        assertArrayEquals(new int[0], index.search("zzz*", 10));
+    }
+
+    @Test
+    public void shouldStopAtLimitInIdOrder() {
+        for (int id = 10; id < 200; id++) {
+            index.put(task(id, "bulk item " + id, "common words"));
+        }
+        int[] exact = index.search("common", 5);
+        assertArrayEquals(new int[]{10, 11, 12, 13, 14}, exact);
+        int[] prefix = index.search("bul*", 3);
+        assertArrayEquals(new int[]{10, 11, 12}, prefix);
+        assertEquals(0, index.search("common", 0).length);
+    }
+
+    @Test
+    public void shouldReplaceWordsOnUpdateAndForgetRemoved() {
+        index.put(task(3, "Changelog", "draft"));
+        assertArrayEquals(new int[0], index.search("release", 10));
+        assertArrayEquals(new int[]{3}, index.search("changelog draft", 10));
+
+        index.remove(3);
+        assertArrayEquals(new int[0], index.search("changelog", 10));
+        assertArrayEquals(new int[0], index.search("chang*", 10));
+
+        index.clear();
+        assertArrayEquals(new int[0], index.search("цифры", 10));
+    }
+}
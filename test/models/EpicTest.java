@@ -3,6 +3,7 @@ package models;
 import org.junit.jupiter.api.Test;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,4 +29,51 @@ public class EpicTest {
         assertEquals(t1, epic.getStartTime());
         assertEquals(t2.plusMinutes(90), epic.getEndTime());
     }
+
+    @Test
+    public void epicAggregatesShouldFollowSubtaskAddAndRemove() {
+        Epic epic = new Epic(1, "Epic", "Epic Desc");
+        LocalDateTime t1 = LocalDateTime.of(2024, 6, 21, 9, 0);
+        LocalDateTime t2 = LocalDateTime.of(2024, 6, 21, 13, 0);
+        Subtask sub1 = new Subtask(2, "S1", "S1 Desc", TaskStatus.NEW, Duration.ofMinutes(60), t1, 1);
+        Subtask sub2 = new Subtask(3, "S2", "S2 Desc", TaskStatus.DONE, Duration.ofMinutes(90), t2, 1);
+
+        epic.addSubtask(sub1);
+        epic.addSubtask(sub2);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(t1, epic.getStartTime());
+        assertEquals(t2.plusMinutes(90), epic.getEndTime());
+
+        epic.removeSubtask(sub2);
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+        assertEquals(t1.plusMinutes(60), epic.getEndTime());
+
+        epic.addSubtask(new Subtask(2, "S1", "S1 Desc", TaskStatus.DONE, Duration.ofMinutes(30), t2, 1));
+        assertEquals(1, epic.getSubtasks().size());
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+        assertEquals(t2, epic.getStartTime());
+        assertEquals(Duration.ofMinutes(30), epic.getDuration());
+
+        epic.clearSubtasks();
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertEquals(Duration.ZERO, epic.getDuration());
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+    }
+
+    @Test
+    public void subtasksShouldKeepInsertionOrderAndBeReadOnly() {
+        Epic epic = new Epic(1, "Epic", "Epic Desc");
+        for (int id = 2; id <= 4; id++) {
+            epic.addSubtask(new Subtask(id, "S" + id, "D", TaskStatus.NEW, Duration.ofMinutes(10), null, 1));
+        }
+        epic.addSubtask(new Subtask(2, "S2 updated", "D", TaskStatus.DONE, Duration.ofMinutes(10), null, 1));
+        epic.removeSubtask(new Subtask(3, "any", "D", TaskStatus.NEW, null, null, 1));
+
+        List<Integer> ids = epic.getSubtasks().stream().map(Task::getId).toList();
+        assertEquals(List.of(2, 4), ids);
+        assertEquals("S2 updated", epic.getSubtasks().iterator().next().getName());
+        assertThrows(UnsupportedOperationException.class, () -> epic.getSubtasks().clear());
+    }
 }